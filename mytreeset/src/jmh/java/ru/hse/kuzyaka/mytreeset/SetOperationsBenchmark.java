@@ -0,0 +1,113 @@
+package ru.hse.kuzyaka.mytreeset;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the set operations of {@code Treap} with repeated calls of {@code add} and {@code remove}.
+ * The operations destroy their arguments, so both sets are built anew before every call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SetOperationsBenchmark {
+    private static final int LARGE_SIZE = 100_000;
+
+    @Param({"100", "10000", "100000"})
+    private int smallSize;
+
+    private Integer[] largeElements;
+    private Integer[] smallElements;
+    private Treap<Integer> large;
+    private Treap<Integer> small;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        var random = new SplittableRandom(0);
+        largeElements = new Integer[LARGE_SIZE];
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            largeElements[i] = random.nextInt(4 * LARGE_SIZE);
+        }
+        smallElements = new Integer[smallSize];
+        for (int i = 0; i < smallSize; i++) {
+            smallElements[i] = random.nextInt(4 * LARGE_SIZE);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void build() {
+        large = new Treap<>();
+        for (var element : largeElements) {
+            large.add(element);
+        }
+        small = new Treap<>();
+        for (var element : smallElements) {
+            small.add(element);
+        }
+    }
+
+    @Benchmark
+    public Treap<Integer> union() {
+        large.union(small);
+        return large;
+    }
+
+    @Benchmark
+    public Treap<Integer> repeatedAdd() {
+        for (var element : small) {
+            large.add(element);
+        }
+        return large;
+    }
+
+    @Benchmark
+    public Treap<Integer> difference() {
+        large.difference(small);
+        return large;
+    }
+
+    @Benchmark
+    public Treap<Integer> repeatedRemove() {
+        for (var element : small) {
+            large.remove(element);
+        }
+        return large;
+    }
+
+    @Benchmark
+    public Treap<Integer> intersection() {
+        large.intersection(small);
+        return large;
+    }
+
+    @Benchmark
+    public Treap<Integer> repeatedContains() {
+        var result = new Treap<Integer>();
+        for (var element : small) {
+            if (large.contains(element)) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Treap<Integer> split() {
+        return large.split(2 * LARGE_SIZE);
+    }
+
+    @Benchmark
+    public Treap<Integer> repeatedRemoveOfTail() {
+        var tail = new Treap<Integer>();
+        for (Integer element = large.ceiling(2 * LARGE_SIZE); element != null; element = large.higher(element)) {
+            tail.add(element);
+        }
+        tail.forEach(large::remove);
+        return tail;
+    }
+}
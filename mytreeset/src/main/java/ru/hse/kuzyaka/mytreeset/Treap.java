@@ -11,7 +11,7 @@ import java.util.*;
  * @param <E> the type of the elements maintained by this set
  */
 public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
-    private Node root = null;
+    private Node<E> root = null;
     private Comparator<? super E> comparator;
     private long version = 0;
     private Random random = new Random(239);
@@ -113,7 +113,7 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
      */
     @Override
     public E lower(@NotNull E e) {
-        Node node = root;
+        Node<E> node = root;
         E lastFitting = null;
         while (node != null) {
             if (comparator.compare(node.value, e) >= 0) {
@@ -167,7 +167,7 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
      */
     @Override
     public E higher(@NotNull E e) {
-        Node node = root;
+        Node<E> node = root;
         E lastFitting = null;
         while (node != null) {
             if (comparator.compare(node.value, e) <= 0) {
@@ -196,10 +196,10 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
         } else {
             var nodePair = split(root, e);
 
-            var newLeft = merge(new NodePair(nodePair.left, new Node(e)));
+            var newLeft = merge(new NodePair<>(nodePair.left, new Node<>(e, random.nextInt())));
             var newRight = nodePair.right;
 
-            root = merge(new NodePair(newLeft, newRight));
+            root = merge(new NodePair<>(newLeft, newRight));
             version++;
             return true;
         }
@@ -225,7 +225,7 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
             root = splitLess.left;
         } else {
             var splitGreater = split(splitLess.right, higher(e));
-            root = merge(new NodePair(splitLess.left, splitGreater.right));
+            root = merge(new NodePair<>(splitLess.left, splitGreater.right));
         }
         version++;
         return true;
@@ -242,7 +242,7 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
     @Override
     public boolean contains(Object o) {
         E e = (E) o;
-        Node node = root;
+        Node<E> node = root;
         while (node != null) {
             if (comparator.compare(node.value, e) == 0) {
                 return true;
@@ -256,7 +256,111 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
         return false;
     }
 
-    private Node getNext(@NotNull Node node) {
+    /**
+     * Splits the set in two by the given key. The elements less than the key stay in this set, the rest are moved
+     * to the returned set, which uses the same comparator. Takes expected O(log n) time
+     *
+     * @param key the least possible element of the returned set
+     * @return set of the elements greater than or equal to the key
+     * @throws ClassCastException if the key cannot be compared with the elements in this set
+     */
+    public Treap<E> split(@NotNull E key) {
+        var nodePair = split(root, key);
+        var result = new Treap<E>(comparator);
+        setRoot(nodePair.left);
+        result.setRoot(nodePair.right);
+        version++;
+        return result;
+    }
+
+    /**
+     * Moves all elements of the other set to the end of this set, leaving the other set empty. All elements
+     * of the other set must be greater than the elements of this set according to the comparator of this set.
+     * Takes expected O(log n) time
+     *
+     * @param other set of elements greater than the elements of this set
+     * @throws IllegalArgumentException if the other set is this set or has an element which is not greater than
+     * the elements of this set
+     */
+    public void join(@NotNull Treap<E> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot join a set with itself");
+        }
+        if (root != null && other.root != null && comparator.compare(last(), other.first()) >= 0) {
+            throw new IllegalArgumentException("Elements of the joined set must be greater than elements of this set");
+        }
+        setRoot(merge(new NodePair<>(root, other.root)));
+        other.setRoot(null);
+        version++;
+        other.version++;
+    }
+
+    /**
+     * Adds all elements of the other set to this set, leaving the other set empty. Nodes of both sets are reused
+     * in this set. Both sets must use the same ordering. Takes expected O(m log(n/m + 1)) time, where m and n are
+     * the sizes of the smaller and the larger set
+     *
+     * @param other set whose elements are added
+     * @return {@code true} if this set changed; {@code false} otherwise
+     */
+    public boolean union(@NotNull Treap<E> other) {
+        if (other == this) {
+            return false;
+        }
+        int oldSize = size();
+        setRoot(union(root, other.root));
+        other.setRoot(null);
+        version++;
+        other.version++;
+        return size() != oldSize;
+    }
+
+    /**
+     * Retains only the elements of this set which are contained in the other set, leaving the other set empty,
+     * unlike {@link #retainAll(Collection)}. Nodes of both sets are reused in this set. Both sets must
+     * use the same ordering. Takes expected O(m log(n/m + 1)) time, where m and n are the sizes of the smaller
+     * and the larger set
+     *
+     * @param other set whose elements are retained
+     * @return {@code true} if this set changed; {@code false} otherwise
+     */
+    public boolean intersection(@NotNull Treap<E> other) {
+        if (other == this) {
+            return false;
+        }
+        int oldSize = size();
+        setRoot(intersection(root, other.root));
+        other.setRoot(null);
+        version++;
+        other.version++;
+        return size() != oldSize;
+    }
+
+    /**
+     * Removes all elements of the other set from this set, leaving the other set empty, unlike
+     * {@link #removeAll(Collection)}. Nodes of both sets are reused in this set. Both sets must use
+     * the same ordering. Takes expected O(m log(n/m + 1)) time, where m and n are the sizes of the smaller
+     * and the larger set
+     *
+     * @param other set whose elements are removed
+     * @return {@code true} if this set changed; {@code false} otherwise
+     */
+    public boolean difference(@NotNull Treap<E> other) {
+        if (other == this) {
+            boolean changed = root != null;
+            setRoot(null);
+            version++;
+            return changed;
+        }
+        int oldSize = size();
+        setRoot(difference(root, other.root));
+        other.setRoot(null);
+        version++;
+        other.version++;
+        return size() != oldSize;
+    }
+
+    private Node<E> getNext(@NotNull Node<E> node) {
         if (node.right != null) {
             node = node.right;
             while (node.left != null) {
@@ -271,7 +375,7 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
         }
     }
 
-    private Node getPrev(@NotNull Node node) {
+    private Node<E> getPrev(@NotNull Node<E> node) {
         if (node.left != null) {
             node = node.left;
             while (node.right != null) {
@@ -286,7 +390,7 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
         }
     }
 
-    private Node merge(@NotNull NodePair nodePair) {
+    private Node<E> merge(@NotNull NodePair<E> nodePair) {
         if (nodePair.left == null) {
             return nodePair.right;
         }
@@ -295,14 +399,14 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
         }
 
         if (nodePair.left.priority > nodePair.right.priority) {
-            nodePair.left.right = merge(new NodePair(nodePair.left.right, nodePair.right));
+            nodePair.left.right = merge(new NodePair<>(nodePair.left.right, nodePair.right));
             nodePair.left.update();
             nodePair.left.right.ancestor = nodePair.left;
             nodePair.left.right.direction = Direction.RIGHT;
             nodePair.left.direction = Direction.ROOT;
             return nodePair.left;
         } else {
-            nodePair.right.left = merge(new NodePair(nodePair.left, nodePair.right.left));
+            nodePair.right.left = merge(new NodePair<>(nodePair.left, nodePair.right.left));
             nodePair.right.update();
             nodePair.right.left.ancestor = nodePair.right;
             nodePair.right.left.direction = Direction.LEFT;
@@ -311,9 +415,9 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
         }
     }
 
-    private NodePair split(Node node, @NotNull E e) {
+    private NodePair<E> split(Node<E> node, @NotNull E e) {
         if (node == null) {
-            return new NodePair(null, null);
+            return new NodePair<>(null, null);
         }
 
         if (comparator.compare(node.value, e) < 0) {
@@ -325,7 +429,7 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
             }
             node.direction = Direction.ROOT;
             node.update();
-            return new NodePair(node, split.right);
+            return new NodePair<>(node, split.right);
         } else {
             var split = split(node.left, e);
             node.left = split.right;
@@ -335,11 +439,114 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
             }
             node.direction = Direction.ROOT;
             node.update();
-            return new NodePair(split.left, node);
+            return new NodePair<>(split.left, node);
         }
     }
 
-    private int size(Node node) {
+    /** Splits the subtree in the elements less than the given one, the element equal to it and the greater ones **/
+    private NodeTriple<E> splitOut(Node<E> node, @NotNull E e) {
+        if (node == null) {
+            return new NodeTriple<>(null, null, null);
+        }
+
+        int comparison = comparator.compare(node.value, e);
+        if (comparison == 0) {
+            var result = new NodeTriple<>(node.left, node, node.right);
+            link(node, null, null);
+            return result;
+        } else if (comparison < 0) {
+            var split = splitOut(node.right, e);
+            link(node, node.left, split.left);
+            return new NodeTriple<>(node, split.middle, split.right);
+        } else {
+            var split = splitOut(node.left, e);
+            link(node, split.right, node.right);
+            return new NodeTriple<>(split.left, split.middle, node);
+        }
+    }
+
+    private Node<E> union(Node<E> first, Node<E> second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+
+        if (first.priority < second.priority) {
+            var swap = first;
+            first = second;
+            second = swap;
+        }
+        var split = splitOut(second, first.value);
+        link(first, union(first.left, split.left), union(first.right, split.right));
+        return first;
+    }
+
+    private Node<E> intersection(Node<E> first, Node<E> second) {
+        if (first == null || second == null) {
+            return null;
+        }
+
+        if (first.priority < second.priority) {
+            var swap = first;
+            first = second;
+            second = swap;
+        }
+        var split = splitOut(second, first.value);
+        var left = intersection(first.left, split.left);
+        var right = intersection(first.right, split.right);
+        if (split.middle == null) {
+            return merge(new NodePair<>(left, right));
+        }
+        link(first, left, right);
+        return first;
+    }
+
+    /** Returns the subtree of the elements of the first subtree which are not in the second one **/
+    private Node<E> difference(Node<E> first, Node<E> second) {
+        if (first == null || second == null) {
+            return first;
+        }
+
+        if (first.priority >= second.priority) {
+            var split = splitOut(second, first.value);
+            var left = difference(first.left, split.left);
+            var right = difference(first.right, split.right);
+            if (split.middle != null) {
+                return merge(new NodePair<>(left, right));
+            }
+            link(first, left, right);
+            return first;
+        } else {
+            var split = splitOut(first, second.value);
+            return merge(new NodePair<>(difference(split.left, second.left), difference(split.right, second.right)));
+        }
+    }
+
+    private void link(@NotNull Node<E> node, Node<E> left, Node<E> right) {
+        node.left = left;
+        node.right = right;
+        if (left != null) {
+            left.ancestor = node;
+            left.direction = Direction.LEFT;
+        }
+        if (right != null) {
+            right.ancestor = node;
+            right.direction = Direction.RIGHT;
+        }
+        node.update();
+    }
+
+    private void setRoot(Node<E> node) {
+        root = node;
+        if (node != null) {
+            node.ancestor = null;
+            node.direction = Direction.ROOT;
+        }
+    }
+
+    private static <E> int size(Node<E> node) {
         return node == null ? 0 : node.size;
     }
 
@@ -348,7 +555,7 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
     }
 
     private class TreapIterator implements Iterator<E> {
-        private Node pointer;
+        private Node<E> pointer;
         private long version;
 
         private TreapIterator() {
@@ -384,7 +591,7 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
     }
 
     private class DescendingIterator extends TreapIterator {
-        private Node pointer;
+        private Node<E> pointer;
         private long version;
 
         private DescendingIterator() {
@@ -418,27 +625,27 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
         }
     }
 
-    private class Node {
-        private Node left;
-        private Node right;
-        private Node ancestor;
+    private static class Node<E> {
+        private Node<E> left;
+        private Node<E> right;
+        private Node<E> ancestor;
         private E value;
         private int priority;
         private int size;
         private Direction direction;
 
-        private Node(E value) {
-            this(value, null, null, Direction.ROOT, null);
+        private Node(E value, int priority) {
+            this(value, priority, null, null, Direction.ROOT, null);
         }
 
-        private Node(E value, Node left, Node right, Direction direction, Node ancestor) {
+        private Node(E value, int priority, Node<E> left, Node<E> right, Direction direction, Node<E> ancestor) {
             this.value = value;
             this.left = left;
             this.right = right;
             this.direction = direction;
             this.ancestor = ancestor;
             this.size = size(left) + size(right) + 1;
-            priority = random.nextInt();
+            this.priority = priority;
         }
 
         private void update() {
@@ -446,12 +653,24 @@ public class Treap<E> extends AbstractSet<E> implements MyTreeSet<E> {
         }
     }
 
-    private class NodePair {
-        private Node left;
-        private Node right;
+    private static class NodePair<E> {
+        private Node<E> left;
+        private Node<E> right;
+
+        private NodePair(Node<E> left, Node<E> right) {
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private static class NodeTriple<E> {
+        private Node<E> left;
+        private Node<E> middle;
+        private Node<E> right;
 
-        private NodePair(Node left, Node right) {
+        private NodeTriple(Node<E> left, Node<E> middle, Node<E> right) {
             this.left = left;
+            this.middle = middle;
             this.right = right;
         }
     }
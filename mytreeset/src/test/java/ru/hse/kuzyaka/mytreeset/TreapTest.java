@@ -3,8 +3,11 @@ package ru.hse.kuzyaka.mytreeset;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -178,4 +181,134 @@ class TreapTest {
         assertTrue(numbers.contains(1));
         assertThrows(ClassCastException.class, () -> numbers.contains("abc"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void split() {
+        var greater = numbers.split(4);
+        assertArrayEquals(new Integer[]{0, 1, 2, 3}, numbers.toArray());
+        assertArrayEquals(new Integer[]{4, 5, 6, 7, 8, 9}, greater.toArray());
+        assertEquals(Integer.valueOf(3), numbers.last());
+        assertEquals(Integer.valueOf(9), greater.descendingIterator().next());
+        assertEquals(0, numbers.split(100).size());
+        assertEquals(4, numbers.split(-1).size());
+        assertEquals(0, numbers.size());
+    }
+
+    @Test
+    void splitInvalidatesIterator() {
+        var iterator = numbers.iterator();
+        numbers.split(5);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    void join() {
+        var greater = numbers.split(6);
+        assertTrue(greater.add(20));
+        numbers.join(greater);
+        assertEquals(11, numbers.size());
+        assertEquals(0, greater.size());
+        assertEquals(Integer.valueOf(20), numbers.last());
+        assertTrue(numbers.contains(7));
+        numbers.join(emptyTreap);
+        emptyTreap.join(numbers);
+        assertEquals(11, emptyTreap.size());
+        assertEquals(0, numbers.size());
+    }
+
+    @Test
+    void joinOverlapping() {
+        treap.add(5);
+        assertThrows(IllegalArgumentException.class, () -> numbers.join(treap));
+        assertThrows(IllegalArgumentException.class, () -> numbers.join(numbers));
+        assertEquals(10, numbers.size());
+        assertEquals(1, treap.size());
+    }
+
+    @Test
+    void union() {
+        treap.add(5);
+        treap.add(15);
+        treap.add(-3);
+        assertTrue(numbers.union(treap));
+        assertEquals(12, numbers.size());
+        assertEquals(0, treap.size());
+        assertEquals(Integer.valueOf(-3), numbers.first());
+        assertEquals(Integer.valueOf(15), numbers.last());
+        assertFalse(numbers.union(numbers(5)));
+        assertFalse(numbers.union(numbers));
+    }
+
+    @Test
+    void intersection() {
+        treap.add(5);
+        treap.add(15);
+        treap.add(-3);
+        treap.add(0);
+        assertTrue(numbers.intersection(treap));
+        assertArrayEquals(new Integer[]{0, 5}, numbers.toArray());
+        assertEquals(0, treap.size());
+        assertFalse(numbers.intersection(numbers(10)));
+        assertTrue(numbers.intersection(emptyTreap));
+        assertEquals(0, numbers.size());
+    }
+
+    @Test
+    void difference() {
+        treap.add(5);
+        treap.add(15);
+        treap.add(0);
+        assertTrue(numbers.difference(treap));
+        assertArrayEquals(new Integer[]{1, 2, 3, 4, 6, 7, 8, 9}, numbers.toArray());
+        assertFalse(numbers.difference(emptyTreap));
+        assertTrue(numbers.difference(numbers));
+        assertEquals(0, numbers.size());
+    }
+
+    @Test
+    void setOperationsSameAsTreeSet() {
+        var random = new Random(0);
+        for (int test = 0; test < 100; test++) {
+            var first = new TreeSet<Integer>();
+            var second = new TreeSet<Integer>();
+            int bound = 1 + random.nextInt(1000);
+            for (int i = random.nextInt(500); i > 0; i--) {
+                first.add(random.nextInt(bound));
+            }
+            for (int i = random.nextInt(500); i > 0; i--) {
+                second.add(random.nextInt(bound));
+            }
+            var union = new TreeSet<>(first);
+            union.addAll(second);
+            var intersection = new TreeSet<>(first);
+            intersection.retainAll(second);
+            var difference = new TreeSet<>(first);
+            difference.removeAll(second);
+
+            var treap = treapOf(first);
+            treap.union(treapOf(second));
+            assertSameElements(union, treap);
+            treap = treapOf(first);
+            treap.intersection(treapOf(second));
+            assertSameElements(intersection, treap);
+            treap = treapOf(first);
+            treap.difference(treapOf(second));
+            assertSameElements(difference, treap);
+        }
+    }
+
+    private static Treap<Integer> treapOf(Collection<Integer> elements) {
+        var treap = new Treap<Integer>();
+        treap.addAll(elements);
+        return treap;
+    }
+
+    private static void assertSameElements(TreeSet<Integer> expected, Treap<Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.toArray(), actual.toArray());
+        assertArrayEquals(expected.descendingSet().toArray(), actual.descendingSet().toArray());
+        for (var element : expected) {
+            assertTrue(actual.contains(element));
+        }
+    }
+}
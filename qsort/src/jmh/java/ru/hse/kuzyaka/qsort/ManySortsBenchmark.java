@@ -0,0 +1,62 @@
+package ru.hse.kuzyaka.qsort;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sorting of many small and medium arrays, where creating a pool for every call dominates.
+ * {@code newPoolPerSort} reproduces the former behaviour of {@code QuickSort.sort}.
+ * Quicksort is chosen explicitly, so the largest arrays are not sorted by radix sort
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ManySortsBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private int[] source;
+    private ForkJoinPool sharedPool;
+    private SortOptions sharedPoolOptions;
+
+    @Setup
+    public void setUp() {
+        source = new Random(0).ints(size).toArray();
+        sharedPool = new ForkJoinPool();
+        sharedPoolOptions = SortOptions.defaults().withPool(sharedPool).withAlgorithm(SortAlgorithm.QUICK_SORT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sharedPool.shutdown();
+    }
+
+    @Benchmark
+    public int[] newPoolPerSort() {
+        int[] array = source.clone();
+        var pool = new ForkJoinPool();
+        QuickSort.sort(array, SortOptions.defaults().withPool(pool).withAlgorithm(SortAlgorithm.QUICK_SORT));
+        pool.shutdown();
+        return array;
+    }
+
+    @Benchmark
+    public int[] commonPool() {
+        int[] array = source.clone();
+        QuickSort.sort(array, SortOptions.defaults().withAlgorithm(SortAlgorithm.QUICK_SORT));
+        return array;
+    }
+
+    @Benchmark
+    public int[] sharedPool() {
+        int[] array = source.clone();
+        QuickSort.sort(array, sharedPoolOptions);
+        return array;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.hse.kuzyaka.qsort;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how sorting of large arrays scales with the number of threads.
+ * Quicksort is chosen explicitly, otherwise arrays of these sizes would be sorted by radix sort.
+ * {@code Arrays.parallelSort} runs in the common pool, so it does not depend on the {@code threads} parameter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ScalingBenchmark {
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int threads;
+
+    @Param({"1000000", "10000000", "100000000"})
+    private int size;
+
+    private int[] source;
+    private int[] array;
+    private ForkJoinPool pool;
+    private SortOptions options;
+
+    @Setup
+    public void setUp() {
+        source = new Random(0).ints(size).toArray();
+        array = new int[size];
+        pool = new ForkJoinPool(threads);
+        options = SortOptions.defaults().withPool(pool).withAlgorithm(SortAlgorithm.QUICK_SORT);
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        System.arraycopy(source, 0, array, 0, size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] quickSort() {
+        QuickSort.sort(array, options);
+        return array;
+    }
+
+    @Benchmark
+    public int[] arraysParallelSort() {
+        Arrays.parallelSort(array);
+        return array;
+    }
+}
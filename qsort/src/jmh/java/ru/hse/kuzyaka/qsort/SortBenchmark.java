@@ -0,0 +1,107 @@
+package ru.hse.kuzyaka.qsort;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares throughput of {@code QuickSort} with {@code Arrays.parallelSort} on inputs of different shapes.
+ * {@code Arrays.parallelSort} is run inside the pool so that it uses the same number of threads,
+ * but it splits the array according to the parallelism of the common pool
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = "-Xmx2g")
+public class SortBenchmark {
+    @Param({"100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"RANDOM", "SORTED", "REVERSED", "FEW_UNIQUE", "ORGAN_PIPE"})
+    private Distribution distribution;
+
+    @Param({"auto", "30", "100", "1000"})
+    private String threshold;
+
+    @Param({"1", "4", "16"})
+    private int threads;
+
+    private int[] source;
+    private int[] array;
+    private ForkJoinPool pool;
+    private SortOptions quickSortOptions;
+    private SortOptions defaultOptions;
+
+    public enum Distribution {
+        RANDOM, SORTED, REVERSED, FEW_UNIQUE, ORGAN_PIPE
+    }
+
+    @Setup
+    public void setUp() {
+        source = generate(distribution, size, new SplittableRandom(0));
+        array = new int[size];
+        pool = new ForkJoinPool(threads);
+        defaultOptions = SortOptions.defaults().withPool(pool);
+        if (!threshold.equals("auto")) {
+            defaultOptions = defaultOptions.withSortThreshold(Integer.parseInt(threshold));
+        }
+        quickSortOptions = defaultOptions.withAlgorithm(SortAlgorithm.QUICK_SORT);
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        System.arraycopy(source, 0, array, 0, size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] quickSort() {
+        QuickSort.sort(array, quickSortOptions);
+        return array;
+    }
+
+    @Benchmark
+    public int[] defaultSort() {
+        QuickSort.sort(array, defaultOptions);
+        return array;
+    }
+
+    @Benchmark
+    public int[] arraysParallelSort() {
+        pool.submit(() -> Arrays.parallelSort(array)).join();
+        return array;
+    }
+
+    private static int[] generate(Distribution distribution, int size, SplittableRandom random) {
+        var array = new int[size];
+        for (int i = 0; i < size; i++) {
+            switch (distribution) {
+                case RANDOM:
+                    array[i] = random.nextInt();
+                    break;
+                case SORTED:
+                    array[i] = i;
+                    break;
+                case REVERSED:
+                    array[i] = size - i;
+                    break;
+                case FEW_UNIQUE:
+                    array[i] = random.nextInt(16);
+                    break;
+                case ORGAN_PIPE:
+                    array[i] = Math.min(i, size - i);
+                    break;
+            }
+        }
+        return array;
+    }
+}
@@ -0,0 +1,332 @@
+package ru.hse.kuzyaka.qsort;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Sorts files of integers which do not fit in memory. A file is a sequence of 32-bit big-endian integers.
+ * The input is read in chunks through memory-mapped I/O, every chunk is sorted in parallel with {@code QuickSort}
+ * and spilled to a temporary file, then the sorted runs are merged with a k-way merge. Readers of the runs
+ * prefetch the next block in the background while the current one is merged. If there are too many runs
+ * to merge them at once with the given memory, they are merged in several passes.
+ * Memory used for chunks and I/O buffers does not exceed the given limit.
+ **/
+public class ExternalSort {
+    private static final long MIN_MEMORY_LIMIT = 1 << 20;
+    private static final int MIN_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_BUFFER_SIZE = 1 << 24;
+    private static final int MAX_CHUNK_LENGTH = Integer.MAX_VALUE / Integer.BYTES;
+
+    private final long memoryLimit;
+    private final Path temporaryDirectory;
+    private final SortOptions options;
+
+    /**
+     * Constructs an external sort with the given memory limit, temporary files are created in the default directory
+     *
+     * @param memoryLimit maximum number of bytes used for sorting and merging
+     * @throws IllegalArgumentException if memory limit is less than 1 MiB
+     */
+    public ExternalSort(long memoryLimit) {
+        this(memoryLimit, null, SortOptions.defaults());
+    }
+
+    /**
+     * Constructs an external sort with the given memory limit, directory for temporary files and sort options
+     *
+     * @param memoryLimit        maximum number of bytes used for sorting and merging
+     * @param temporaryDirectory directory for sorted runs, {@code null} means the default temporary directory
+     * @param options            options of sorting of chunks
+     * @throws IllegalArgumentException if memory limit is less than 1 MiB
+     */
+    public ExternalSort(long memoryLimit, Path temporaryDirectory, SortOptions options) {
+        if (memoryLimit < MIN_MEMORY_LIMIT) {
+            throw new IllegalArgumentException("Memory limit must be at least " + MIN_MEMORY_LIMIT + " bytes");
+        }
+        this.memoryLimit = memoryLimit;
+        this.temporaryDirectory = temporaryDirectory;
+        this.options = options;
+    }
+
+    /**
+     * Sorts integers of the input file and writes them to the output file
+     *
+     * @param input  file to sort
+     * @param output file for the result, it is overwritten if exists
+     * @throws IOException              if an I/O error occurs
+     * @throws IllegalArgumentException if size of the input file is not a multiple of 4
+     */
+    public void sort(Path input, Path output) throws IOException {
+        var runs = new ArrayList<Path>();
+        try {
+            try (var channel = FileChannel.open(input, READ)) {
+                if (channel.size() % Integer.BYTES != 0) {
+                    throw new IllegalArgumentException("Size of the file is not a multiple of " + Integer.BYTES);
+                }
+                long length = channel.size() / Integer.BYTES;
+                // half of the memory is left for the buffer of radix sort and the output buffer
+                long maxChunkLength = (memoryLimit - MIN_BUFFER_SIZE) / 2 / Integer.BYTES;
+                int chunkLength = (int) Math.min(Math.min(length, MAX_CHUNK_LENGTH), maxChunkLength);
+                int[] chunk = new int[chunkLength];
+                for (long from = 0; from < length || runs.isEmpty(); from += chunkLength) {
+                    int chunkSize = (int) Math.min(chunkLength, length - from);
+                    channel.map(FileChannel.MapMode.READ_ONLY, from * Integer.BYTES, (long) chunkSize * Integer.BYTES)
+                            .asIntBuffer().get(chunk, 0, chunkSize);
+                    QuickSort.sort(chunk, 0, chunkSize, options);
+                    if (from + chunkSize == length && runs.isEmpty()) {
+                        writeChunk(chunk, chunkSize, output);
+                        return;
+                    }
+                    runs.add(createRun());
+                    writeChunk(chunk, chunkSize, runs.get(runs.size() - 1));
+                }
+            }
+            mergeRuns(runs, output);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private void mergeRuns(List<Path> runs, Path output) throws IOException {
+        int maxFanIn = (int) Math.max(2, Math.min(Integer.MAX_VALUE, (memoryLimit / MIN_BUFFER_SIZE - 1) / 2));
+        ExecutorService prefetcher = Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (runs.size() > maxFanIn) {
+                var group = new ArrayList<>(runs.subList(0, maxFanIn));
+                var merged = createRun();
+                runs.add(merged);
+                merge(group, merged, prefetcher);
+                for (Path run : group) {
+                    Files.delete(run);
+                    runs.remove(run);
+                }
+            }
+            merge(runs, output, prefetcher);
+        } finally {
+            prefetcher.shutdownNow();
+        }
+    }
+
+    private void merge(List<Path> runs, Path output, ExecutorService prefetcher) throws IOException {
+        // every reader has two buffers, the writer has one
+        int bufferSize = bufferSize(memoryLimit / (2 * runs.size() + 1));
+        var readers = new ArrayList<RunReader>(runs.size());
+        try (var writer = new RunWriter(output, bufferSize)) {
+            for (Path run : runs) {
+                readers.add(new RunReader(run, bufferSize, prefetcher));
+            }
+            int[] heap = new int[readers.size()];
+            int heapSize = 0;
+            for (int i = 0; i < readers.size(); i++) {
+                if (readers.get(i).advance()) {
+                    heap[heapSize++] = i;
+                }
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(heap, heapSize, i, readers);
+            }
+            while (heapSize > 0) {
+                var reader = readers.get(heap[0]);
+                writer.write(reader.current());
+                if (!reader.advance()) {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(heap, heapSize, 0, readers);
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static void siftDown(int[] heap, int heapSize, int index, List<RunReader> readers) {
+        while (2 * index + 1 < heapSize) {
+            int child = 2 * index + 1;
+            if (child + 1 < heapSize && readers.get(heap[child + 1]).current() < readers.get(heap[child]).current()) {
+                child++;
+            }
+            if (readers.get(heap[index]).current() <= readers.get(heap[child]).current()) {
+                return;
+            }
+            int tmp = heap[index];
+            heap[index] = heap[child];
+            heap[child] = tmp;
+            index = child;
+        }
+    }
+
+    private static int bufferSize(long bytes) {
+        long size = Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, bytes));
+        return (int) size / Integer.BYTES * Integer.BYTES;
+    }
+
+    private Path createRun() throws IOException {
+        if (temporaryDirectory == null) {
+            return Files.createTempFile("run", ".bin");
+        }
+        return Files.createTempFile(temporaryDirectory, "run", ".bin");
+    }
+
+    private void writeChunk(int[] chunk, int length, Path path) throws IOException {
+        try (var writer = new RunWriter(path, MIN_BUFFER_SIZE)) {
+            writer.write(chunk, length);
+        }
+    }
+
+    /** Reader of a sorted run which fills the next buffer in the background while the current one is read **/
+    private static class RunReader implements Closeable {
+        private final FileChannel channel;
+        private final ExecutorService prefetcher;
+        private ByteBuffer buffer;
+        private ByteBuffer spareBuffer;
+        private Future<ByteBuffer> prefetched;
+        private int current;
+
+        private RunReader(Path path, int bufferSize, ExecutorService prefetcher) throws IOException {
+            channel = FileChannel.open(path, READ);
+            this.prefetcher = prefetcher;
+            try {
+                buffer = ByteBuffer.allocateDirect(bufferSize);
+                spareBuffer = ByteBuffer.allocateDirect(bufferSize);
+                fill(buffer);
+                prefetch();
+            } catch (Throwable e) {
+                // the reader is not returned, so nobody else can close the channel
+                try {
+                    channel.close();
+                } catch (IOException closeException) {
+                    e.addSuppressed(closeException);
+                }
+                throw e;
+            }
+        }
+
+        /** Moves to the next element, returns {@code false} if the run is over **/
+        private boolean advance() throws IOException {
+            if (!buffer.hasRemaining()) {
+                if (prefetched == null) {
+                    return false;
+                }
+                try {
+                    spareBuffer = buffer;
+                    buffer = prefetched.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+                prefetch();
+                if (!buffer.hasRemaining()) {
+                    return false;
+                }
+            }
+            current = buffer.getInt();
+            return true;
+        }
+
+        private int current() {
+            return current;
+        }
+
+        private void prefetch() {
+            if (buffer.limit() < buffer.capacity()) {
+                prefetched = null;
+                return;
+            }
+            var target = spareBuffer;
+            prefetched = prefetcher.submit(() -> {
+                fill(target);
+                return target;
+            });
+        }
+
+        private void fill(ByteBuffer target) throws IOException {
+            target.clear();
+            while (target.hasRemaining() && channel.read(target) >= 0) {
+                // reading until the buffer is full or the run is over
+            }
+            target.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (prefetched != null) {
+                try {
+                    prefetched.get();
+                } catch (ExecutionException ignored) {
+                    // the result is not needed, waiting only to not close the channel while it is read
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            channel.close();
+        }
+    }
+
+    /** Buffered writer of integers **/
+    private static class RunWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        private RunWriter(Path path, int bufferSize) throws IOException {
+            channel = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        private void write(int value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        private void write(int[] values, int length) throws IOException {
+            for (int from = 0; from < length; ) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int count = Math.min(length - from, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, from, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                from += count;
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package ru.hse.kuzyaka.qsort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Stable parallel merge sort of objects used by {@code QuickSort} when stability is required.
+ * Halves are sorted in parallel alternating between the array and its copy, large merges are split in two
+ * independent merges by a binary search, so the top levels of recursion also use all threads
+ **/
+final class ParallelMergeSort {
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int MERGE_THRESHOLD = 1 << 13;
+
+    private ParallelMergeSort() {
+    }
+
+    /**
+     * Sorts the specified range of the given array stably
+     * @param array array which is to sort
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @param comparator comparator determining the order
+     * @param options options of this sort
+     * @param <T> type of elements
+     */
+    static <T> void sort(T[] array, int left, int right, Comparator<? super T> comparator, SortOptions options) {
+        T[] buffer = Arrays.copyOfRange(array, left, right);
+        int sortThreshold = Math.max(options.sortThreshold(right - left), INSERTION_SORT_THRESHOLD);
+        options.getPool().invoke(new MergeSortTask<>(buffer, left, array, 0, left, right, comparator,
+                sortThreshold));
+    }
+
+    /**
+     * Sorts elements of the range of {@code source} into the same range of {@code destination}, both must be equal.
+     * The range is given by positions, the element at a position is stored in an array at the position minus
+     * the offset of the array, so a copy of the range can be used instead of a copy of the whole array
+     **/
+    private static class MergeSortTask<T> extends RecursiveAction {
+        private T[] source;
+        private int sourceOffset;
+        private T[] destination;
+        private int destinationOffset;
+        private int left;
+        private int right;
+        private Comparator<? super T> comparator;
+        private int sortThreshold;
+
+        private MergeSortTask(T[] source, int sourceOffset, T[] destination, int destinationOffset, int left,
+                              int right, Comparator<? super T> comparator, int sortThreshold) {
+            this.source = source;
+            this.sourceOffset = sourceOffset;
+            this.destination = destination;
+            this.destinationOffset = destinationOffset;
+            this.left = left;
+            this.right = right;
+            this.comparator = comparator;
+            this.sortThreshold = sortThreshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (right - left <= sortThreshold) {
+                sortSequentially(source, sourceOffset, destination, destinationOffset, left, right);
+                return;
+            }
+            int middle = (left + right) >>> 1;
+            invokeAll(new MergeSortTask<>(destination, destinationOffset, source, sourceOffset, left, middle,
+                            comparator, sortThreshold),
+                    new MergeSortTask<>(destination, destinationOffset, source, sourceOffset, middle, right,
+                            comparator, sortThreshold));
+            new MergeTask<>(source, destination, left - sourceOffset, middle - sourceOffset, middle - sourceOffset,
+                    right - sourceOffset, left - destinationOffset, comparator).invoke();
+        }
+
+        private void sortSequentially(T[] source, int sourceOffset, T[] destination, int destinationOffset,
+                                      int left, int right) {
+            if (right - left <= INSERTION_SORT_THRESHOLD) {
+                QuickSort.insertionSort(destination, left - destinationOffset, right - destinationOffset,
+                        comparator);
+                return;
+            }
+            int middle = (left + right) >>> 1;
+            sortSequentially(destination, destinationOffset, source, sourceOffset, left, middle);
+            sortSequentially(destination, destinationOffset, source, sourceOffset, middle, right);
+            merge(source, left - sourceOffset, middle - sourceOffset, middle - sourceOffset, right - sourceOffset,
+                    destination, left - destinationOffset, comparator);
+        }
+    }
+
+    /** Merges two sorted ranges of {@code source} into {@code destination}, the first range wins ties **/
+    static class MergeTask<T> extends RecursiveAction {
+        private T[] source;
+        private T[] destination;
+        private int firstLeft;
+        private int firstRight;
+        private int secondLeft;
+        private int secondRight;
+        private int destinationLeft;
+        private Comparator<? super T> comparator;
+
+        MergeTask(T[] source, T[] destination, int firstLeft, int firstRight, int secondLeft, int secondRight,
+                  int destinationLeft, Comparator<? super T> comparator) {
+            this.source = source;
+            this.destination = destination;
+            this.firstLeft = firstLeft;
+            this.firstRight = firstRight;
+            this.secondLeft = secondLeft;
+            this.secondRight = secondRight;
+            this.destinationLeft = destinationLeft;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            int firstSize = firstRight - firstLeft;
+            int secondSize = secondRight - secondLeft;
+            if (firstSize + secondSize <= MERGE_THRESHOLD || firstSize == 0 || secondSize == 0) {
+                merge(source, firstLeft, firstRight, secondLeft, secondRight, destination, destinationLeft,
+                        comparator);
+                return;
+            }
+            int firstMiddle;
+            int secondMiddle;
+            if (firstSize >= secondSize) {
+                firstMiddle = (firstLeft + firstRight) >>> 1;
+                secondMiddle = lowerBound(secondLeft, secondRight, source[firstMiddle]);
+            } else {
+                secondMiddle = (secondLeft + secondRight) >>> 1;
+                firstMiddle = upperBound(firstLeft, firstRight, source[secondMiddle]);
+            }
+            int destinationMiddle = destinationLeft + (firstMiddle - firstLeft) + (secondMiddle - secondLeft);
+            invokeAll(new MergeTask<>(source, destination, firstLeft, firstMiddle, secondLeft, secondMiddle,
+                            destinationLeft, comparator),
+                    new MergeTask<>(source, destination, firstMiddle, firstRight, secondMiddle, secondRight,
+                            destinationMiddle, comparator));
+        }
+
+        /** Returns the first position in the range with an element which is not less than the given one **/
+        private int lowerBound(int left, int right, T element) {
+            while (left < right) {
+                int middle = (left + right) >>> 1;
+                if (comparator.compare(source[middle], element) < 0) {
+                    left = middle + 1;
+                } else {
+                    right = middle;
+                }
+            }
+            return left;
+        }
+
+        /** Returns the first position in the range with an element which is greater than the given one **/
+        private int upperBound(int left, int right, T element) {
+            while (left < right) {
+                int middle = (left + right) >>> 1;
+                if (comparator.compare(source[middle], element) <= 0) {
+                    left = middle + 1;
+                } else {
+                    right = middle;
+                }
+            }
+            return left;
+        }
+    }
+
+    private static <T> void merge(T[] source, int firstLeft, int firstRight, int secondLeft, int secondRight,
+                                  T[] destination, int destinationLeft, Comparator<? super T> comparator) {
+        int i = firstLeft;
+        int j = secondLeft;
+        int k = destinationLeft;
+        while (i < firstRight && j < secondRight) {
+            if (comparator.compare(source[j], source[i]) < 0) {
+                destination[k++] = source[j++];
+            } else {
+                destination[k++] = source[i++];
+            }
+        }
+        System.arraycopy(source, i, destination, k, firstRight - i);
+        System.arraycopy(source, j, destination, k + firstRight - i, secondRight - j);
+    }
+}
@@ -0,0 +1,483 @@
+package ru.hse.kuzyaka.qsort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Block-parallel partitioning of large ranges used by the quick sort tasks at the top levels of recursion.
+ * The range is cut into blocks which are partitioned independently, then the misplaced parts of the blocks are
+ * swapped with each other in parallel. Must be called from a {@code ForkJoinPool} thread
+ **/
+final class ParallelPartition {
+    private static final int SAMPLE_SIZE = 63;
+    private static final int MIN_SWAP_CHUNK = 1 << 12;
+
+    private ParallelPartition() {
+    }
+
+    /**
+     * Chooses a pivot as the median of the elements taken from evenly spaced positions of the range
+     * @param array array to choose from
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @return the pivot
+     */
+    static int samplePivot(int[] array, int left, int right) {
+        int[] sample = new int[Math.min(SAMPLE_SIZE, right - left)];
+        long step = (right - left) / sample.length;
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = array[(int) (left + i * step)];
+        }
+        Arrays.sort(sample);
+        return sample[sample.length / 2];
+    }
+
+    /**
+     * Partitions the range so that the elements less than the pivot (or not greater than it if {@code inclusive})
+     * go before the others
+     * @param array array to partition
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @param pivot element to compare with
+     * @param inclusive whether the elements equal to the pivot go to the first part
+     * @param blocks number of blocks processed in parallel
+     * @return the index of the first element of the second part
+     */
+    static int partition(int[] array, int left, int right, int pivot, boolean inclusive, int blocks) {
+        int blockSize = (right - left + blocks - 1) / blocks;
+        int[] firstPartSizes = new int[blocks];
+        var tasks = new ArrayList<ForkJoinTask<?>>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int block = i;
+            int from = left + i * blockSize;
+            int to = Math.min(right, from + blockSize);
+            if (from < to) {
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    firstPartSizes[block] = partitionBlock(array, from, to, pivot, inclusive);
+                }));
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        int middle = left;
+        for (int size : firstPartSizes) {
+            middle += size;
+        }
+        var misplacedFirst = new Segments(blocks);
+        var misplacedSecond = new Segments(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int from = left + i * blockSize;
+            int to = Math.min(right, from + blockSize);
+            if (from < to) {
+                int border = from + firstPartSizes[i];
+                misplacedSecond.add(border, Math.min(to, middle));
+                misplacedFirst.add(Math.max(from, middle), border);
+            }
+        }
+        swapSegments(array, misplacedFirst, misplacedSecond, blocks);
+        return middle;
+    }
+
+    private static int partitionBlock(int[] array, int from, int to, int pivot, boolean inclusive) {
+        int border = from;
+        for (int i = from; i < to; i++) {
+            int value = array[i];
+            if (value < pivot || inclusive && value == pivot) {
+                array[i] = array[border];
+                array[border++] = value;
+            }
+        }
+        return border - from;
+    }
+
+    private static void swapSegments(int[] array, Segments first, Segments second, int blocks) {
+        int total = first.total();
+        int chunk = Math.max(MIN_SWAP_CHUNK, (total + blocks - 1) / blocks);
+        var tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int from = 0; from < total; from += chunk) {
+            int begin = from;
+            int end = Math.min(total, from + chunk);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                int firstSegment = first.find(begin);
+                int secondSegment = second.find(begin);
+                int i = first.position(firstSegment, begin);
+                int j = second.position(secondSegment, begin);
+                for (int k = begin; k < end; k++) {
+                    while (i == first.end(firstSegment)) {
+                        i = first.start(++firstSegment);
+                    }
+                    while (j == second.end(secondSegment)) {
+                        j = second.start(++secondSegment);
+                    }
+                    int tmp = array[i];
+                    array[i++] = array[j];
+                    array[j++] = tmp;
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /**
+     * Chooses a pivot as the median of the elements taken from evenly spaced positions of the range
+     * @param array array to choose from
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @return the pivot
+     */
+    static long samplePivot(long[] array, int left, int right) {
+        long[] sample = new long[Math.min(SAMPLE_SIZE, right - left)];
+        long step = (right - left) / sample.length;
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = array[(int) (left + i * step)];
+        }
+        Arrays.sort(sample);
+        return sample[sample.length / 2];
+    }
+
+    /**
+     * Partitions the range so that the elements less than the pivot (or not greater than it if {@code inclusive})
+     * go before the others
+     * @param array array to partition
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @param pivot element to compare with
+     * @param inclusive whether the elements equal to the pivot go to the first part
+     * @param blocks number of blocks processed in parallel
+     * @return the index of the first element of the second part
+     */
+    static int partition(long[] array, int left, int right, long pivot, boolean inclusive, int blocks) {
+        int blockSize = (right - left + blocks - 1) / blocks;
+        int[] firstPartSizes = new int[blocks];
+        var tasks = new ArrayList<ForkJoinTask<?>>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int block = i;
+            int from = left + i * blockSize;
+            int to = Math.min(right, from + blockSize);
+            if (from < to) {
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    firstPartSizes[block] = partitionBlock(array, from, to, pivot, inclusive);
+                }));
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        int middle = left;
+        for (int size : firstPartSizes) {
+            middle += size;
+        }
+        var misplacedFirst = new Segments(blocks);
+        var misplacedSecond = new Segments(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int from = left + i * blockSize;
+            int to = Math.min(right, from + blockSize);
+            if (from < to) {
+                int border = from + firstPartSizes[i];
+                misplacedSecond.add(border, Math.min(to, middle));
+                misplacedFirst.add(Math.max(from, middle), border);
+            }
+        }
+        swapSegments(array, misplacedFirst, misplacedSecond, blocks);
+        return middle;
+    }
+
+    private static int partitionBlock(long[] array, int from, int to, long pivot, boolean inclusive) {
+        int border = from;
+        for (int i = from; i < to; i++) {
+            long value = array[i];
+            if (value < pivot || inclusive && value == pivot) {
+                array[i] = array[border];
+                array[border++] = value;
+            }
+        }
+        return border - from;
+    }
+
+    private static void swapSegments(long[] array, Segments first, Segments second, int blocks) {
+        int total = first.total();
+        int chunk = Math.max(MIN_SWAP_CHUNK, (total + blocks - 1) / blocks);
+        var tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int from = 0; from < total; from += chunk) {
+            int begin = from;
+            int end = Math.min(total, from + chunk);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                int firstSegment = first.find(begin);
+                int secondSegment = second.find(begin);
+                int i = first.position(firstSegment, begin);
+                int j = second.position(secondSegment, begin);
+                for (int k = begin; k < end; k++) {
+                    while (i == first.end(firstSegment)) {
+                        i = first.start(++firstSegment);
+                    }
+                    while (j == second.end(secondSegment)) {
+                        j = second.start(++secondSegment);
+                    }
+                    long tmp = array[i];
+                    array[i++] = array[j];
+                    array[j++] = tmp;
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /**
+     * Chooses a pivot as the median of the elements taken from evenly spaced positions of the range
+     * @param array array to choose from
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @return the pivot
+     */
+    static double samplePivot(double[] array, int left, int right) {
+        double[] sample = new double[Math.min(SAMPLE_SIZE, right - left)];
+        long step = (right - left) / sample.length;
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = array[(int) (left + i * step)];
+        }
+        Arrays.sort(sample);
+        return sample[sample.length / 2];
+    }
+
+    /**
+     * Partitions the range so that the elements less than the pivot (or not greater than it if {@code inclusive})
+     * go before the others
+     * @param array array to partition
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @param pivot element to compare with
+     * @param inclusive whether the elements equal to the pivot go to the first part
+     * @param blocks number of blocks processed in parallel
+     * @return the index of the first element of the second part
+     */
+    static int partition(double[] array, int left, int right, double pivot, boolean inclusive, int blocks) {
+        int blockSize = (right - left + blocks - 1) / blocks;
+        int[] firstPartSizes = new int[blocks];
+        var tasks = new ArrayList<ForkJoinTask<?>>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int block = i;
+            int from = left + i * blockSize;
+            int to = Math.min(right, from + blockSize);
+            if (from < to) {
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    firstPartSizes[block] = partitionBlock(array, from, to, pivot, inclusive);
+                }));
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        int middle = left;
+        for (int size : firstPartSizes) {
+            middle += size;
+        }
+        var misplacedFirst = new Segments(blocks);
+        var misplacedSecond = new Segments(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int from = left + i * blockSize;
+            int to = Math.min(right, from + blockSize);
+            if (from < to) {
+                int border = from + firstPartSizes[i];
+                misplacedSecond.add(border, Math.min(to, middle));
+                misplacedFirst.add(Math.max(from, middle), border);
+            }
+        }
+        swapSegments(array, misplacedFirst, misplacedSecond, blocks);
+        return middle;
+    }
+
+    private static int partitionBlock(double[] array, int from, int to, double pivot, boolean inclusive) {
+        int border = from;
+        for (int i = from; i < to; i++) {
+            double value = array[i];
+            if (value < pivot || inclusive && value == pivot) {
+                array[i] = array[border];
+                array[border++] = value;
+            }
+        }
+        return border - from;
+    }
+
+    private static void swapSegments(double[] array, Segments first, Segments second, int blocks) {
+        int total = first.total();
+        int chunk = Math.max(MIN_SWAP_CHUNK, (total + blocks - 1) / blocks);
+        var tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int from = 0; from < total; from += chunk) {
+            int begin = from;
+            int end = Math.min(total, from + chunk);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                int firstSegment = first.find(begin);
+                int secondSegment = second.find(begin);
+                int i = first.position(firstSegment, begin);
+                int j = second.position(secondSegment, begin);
+                for (int k = begin; k < end; k++) {
+                    while (i == first.end(firstSegment)) {
+                        i = first.start(++firstSegment);
+                    }
+                    while (j == second.end(secondSegment)) {
+                        j = second.start(++secondSegment);
+                    }
+                    double tmp = array[i];
+                    array[i++] = array[j];
+                    array[j++] = tmp;
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /**
+     * Chooses a pivot as the median of the elements taken from evenly spaced positions of the range
+     * @param array array to choose from
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @param comparator comparator determining the order
+     * @param <T> type of elements
+     * @return the pivot
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T samplePivot(T[] array, int left, int right, Comparator<? super T> comparator) {
+        T[] sample = (T[]) new Object[Math.min(SAMPLE_SIZE, right - left)];
+        long step = (right - left) / sample.length;
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = array[(int) (left + i * step)];
+        }
+        Arrays.sort(sample, comparator);
+        return sample[sample.length / 2];
+    }
+
+    /**
+     * Partitions the range so that the elements less than the pivot (or not greater than it if {@code inclusive})
+     * go before the others
+     * @param array array to partition
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @param pivot element to compare with
+     * @param inclusive whether the elements equal to the pivot go to the first part
+     * @param blocks number of blocks processed in parallel
+     * @param comparator comparator determining the order
+     * @param <T> type of elements
+     * @return the index of the first element of the second part
+     */
+    static <T> int partition(T[] array, int left, int right, T pivot, boolean inclusive, int blocks,
+                             Comparator<? super T> comparator) {
+        int blockSize = (right - left + blocks - 1) / blocks;
+        int[] firstPartSizes = new int[blocks];
+        var tasks = new ArrayList<ForkJoinTask<?>>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int block = i;
+            int from = left + i * blockSize;
+            int to = Math.min(right, from + blockSize);
+            if (from < to) {
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    firstPartSizes[block] = partitionBlock(array, from, to, pivot, inclusive, comparator);
+                }));
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        int middle = left;
+        for (int size : firstPartSizes) {
+            middle += size;
+        }
+        var misplacedFirst = new Segments(blocks);
+        var misplacedSecond = new Segments(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int from = left + i * blockSize;
+            int to = Math.min(right, from + blockSize);
+            if (from < to) {
+                int border = from + firstPartSizes[i];
+                misplacedSecond.add(border, Math.min(to, middle));
+                misplacedFirst.add(Math.max(from, middle), border);
+            }
+        }
+        swapSegments(array, misplacedFirst, misplacedSecond, blocks);
+        return middle;
+    }
+
+    private static <T> int partitionBlock(T[] array, int from, int to, T pivot, boolean inclusive,
+                                          Comparator<? super T> comparator) {
+        int border = from;
+        for (int i = from; i < to; i++) {
+            T value = array[i];
+            int comparison = comparator.compare(value, pivot);
+            if (comparison < 0 || inclusive && comparison == 0) {
+                array[i] = array[border];
+                array[border++] = value;
+            }
+        }
+        return border - from;
+    }
+
+    private static void swapSegments(Object[] array, Segments first, Segments second, int blocks) {
+        int total = first.total();
+        int chunk = Math.max(MIN_SWAP_CHUNK, (total + blocks - 1) / blocks);
+        var tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int from = 0; from < total; from += chunk) {
+            int begin = from;
+            int end = Math.min(total, from + chunk);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                int firstSegment = first.find(begin);
+                int secondSegment = second.find(begin);
+                int i = first.position(firstSegment, begin);
+                int j = second.position(secondSegment, begin);
+                for (int k = begin; k < end; k++) {
+                    while (i == first.end(firstSegment)) {
+                        i = first.start(++firstSegment);
+                    }
+                    while (j == second.end(secondSegment)) {
+                        j = second.start(++secondSegment);
+                    }
+                    Object tmp = array[i];
+                    array[i++] = array[j];
+                    array[j++] = tmp;
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /** Sequence of disjoint index segments which is addressed by the overall number of an element in it **/
+    private static class Segments {
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] offsets;
+        private int count = 0;
+
+        private Segments(int capacity) {
+            starts = new int[capacity];
+            ends = new int[capacity];
+            offsets = new int[capacity + 1];
+        }
+
+        private void add(int start, int end) {
+            if (start < end) {
+                starts[count] = start;
+                ends[count] = end;
+                offsets[count + 1] = offsets[count] + end - start;
+                count++;
+            }
+        }
+
+        private int total() {
+            return offsets[count];
+        }
+
+        private int find(int number) {
+            int index = Arrays.binarySearch(offsets, 0, count + 1, number);
+            return index < 0 ? -index - 2 : index;
+        }
+
+        private int position(int segment, int number) {
+            return starts[segment] + number - offsets[segment];
+        }
+
+        private int start(int segment) {
+            return starts[segment];
+        }
+
+        private int end(int segment) {
+            return ends[segment];
+        }
+    }
+}
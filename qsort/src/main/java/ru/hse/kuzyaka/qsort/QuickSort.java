@@ -1,98 +1,1637 @@
 package ru.hse.kuzyaka.qsort;
 
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Random;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SplittableRandom;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveAction;
-import java.util.stream.IntStream;
 
-/** Class implementing multithreading quick sort algorithm for sorting integer lists. **/
+/**
+ * Class implementing multithreading quick sort algorithm for sorting integer lists and primitive arrays.
+ * Sorting is performed in the given {@code ForkJoinPool} or in the common pool if none is given.
+ * Large ranges are partitioned by all threads of the pool, smaller ones are split around two pivots.
+ * Every sort is configured by its own {@link SortOptions}, so concurrent sorts do not affect each other.
+ * Large arrays of integers and longs are sorted by parallel radix sort unless another algorithm is chosen.
+ * Ascending, descending and nearly sorted inputs are detected and sorted by merging their presorted runs.
+ * Selection of the k-th element, of the k smallest elements and of percentiles partitions only the part
+ * containing the wanted index, so it takes linear expected time.
+ **/
 public class QuickSort {
-    private static int sortThreshold = 100;
-    private static Random random = new Random(0);
+    private static final int PARALLEL_PARTITION_THRESHOLD = 1 << 20;
+    private static final int BLOCKS_PER_THREAD = 4;
+    private static final int PIVOT_SAMPLE_SIZE = 5;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int RADIX_SORT_THRESHOLD = 1 << 16;
+    private static final int RUN_DETECTION_THRESHOLD = 256;
 
     /**
-     * Sets threshold which determines how small the array must be to perform Collections::sort on it (100 by default)
-     * @param sortThreshold new threshold
+     * Sorts given list of integers in the common {@code ForkJoinPool}
+     * @param listToSort list which is to sort
      */
-    public static void setSortThreshold(int sortThreshold) {
-        QuickSort.sortThreshold = sortThreshold;
+    public static void sort(List<Integer> listToSort) {
+        sort(listToSort, SortOptions.defaults());
     }
 
     /**
-     * Sets random number generator used when pivot element is chosen ({@code java.util.Random(0)} by default)
-     * @param random new random number generator
+     * Sorts given list of integers using threads of the given pool
+     * @param listToSort list which is to sort
+     * @param pool pool which performs sorting
      */
-    public static void setRandom(Random random) {
-        QuickSort.random = random;
+    public static void sort(List<Integer> listToSort, ForkJoinPool pool) {
+        sort(listToSort, SortOptions.defaults().withPool(pool));
     }
 
     /**
-     * Sorts given list of integers using multithreading
+     * Sorts given list of integers with the given options
      * @param listToSort list which is to sort
+     * @param options options of this sort
      */
-    public static void sort(List<Integer> listToSort) {
-        if (isSorted(listToSort)) {
+    public static void sort(List<Integer> listToSort, SortOptions options) {
+        int[] arrayToSort = new int[listToSort.size()];
+        int index = 0;
+        for (int value : listToSort) {
+            arrayToSort[index++] = value;
+        }
+        sort(arrayToSort, 0, arrayToSort.length, options);
+
+        ListIterator<Integer> iterator = listToSort.listIterator();
+        for (int value : arrayToSort) {
+            if (iterator.next() != value) {
+                iterator.set(value);
+            }
+        }
+    }
+
+    /**
+     * Sorts given array of integers in place in the common {@code ForkJoinPool}
+     * @param array array which is to sort
+     */
+    public static void sort(int[] array) {
+        sort(array, 0, array.length, SortOptions.defaults());
+    }
+
+    /**
+     * Sorts given array of integers in place using threads of the given pool
+     * @param array array which is to sort
+     * @param pool pool which performs sorting
+     */
+    public static void sort(int[] array, ForkJoinPool pool) {
+        sort(array, 0, array.length, SortOptions.defaults().withPool(pool));
+    }
+
+    /**
+     * Sorts given array of integers in place with the given options
+     * @param array array which is to sort
+     * @param options options of this sort
+     */
+    public static void sort(int[] array, SortOptions options) {
+        sort(array, 0, array.length, options);
+    }
+
+    /**
+     * Sorts the specified range of the given array of integers in place in the common {@code ForkJoinPool}
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     */
+    public static void sort(int[] array, int fromIndex, int toIndex) {
+        sort(array, fromIndex, toIndex, SortOptions.defaults());
+    }
+
+    /**
+     * Sorts the specified range of the given array of integers in place using threads of the given pool
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool pool which performs sorting
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     */
+    public static void sort(int[] array, int fromIndex, int toIndex, ForkJoinPool pool) {
+        sort(array, fromIndex, toIndex, SortOptions.defaults().withPool(pool));
+    }
+
+    /**
+     * Sorts the specified range of the given array of integers in place with the given options
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param options options of this sort
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     */
+    public static void sort(int[] array, int fromIndex, int toIndex, SortOptions options) {
+        Objects.checkFromToIndex(fromIndex, toIndex, array.length);
+        var runs = toIndex - fromIndex < RUN_DETECTION_THRESHOLD ? null
+                : RunMerger.findRuns(array, fromIndex, toIndex);
+        if (runs == null) {
+            sortRange(array, fromIndex, toIndex, options);
+            return;
+        }
+        if (runs.getUnsortedFrom() < toIndex) {
+            sortRange(array, runs.getUnsortedFrom(), toIndex, options);
+        }
+        RunMerger.merge(array, runs, options.getPool());
+    }
+
+    private static void sortRange(int[] array, int fromIndex, int toIndex, SortOptions options) {
+        if (isRadixSortChosen(toIndex - fromIndex, options)) {
+            RadixSort.sort(array, fromIndex, toIndex, options.getPool());
+            return;
+        }
+        int sortThreshold = options.sortThreshold(toIndex - fromIndex);
+        var task = new QuickSortTask(array, fromIndex, toIndex, sortThreshold, options.newRandom());
+        options.getPool().invoke(task);
+    }
+
+    /**
+     * Returns the element which would be at the given index if the array were sorted, i.e. the k-th smallest one.
+     * The array is reordered: the elements before the index are not greater than it and the ones after it
+     * are not less. Only the part containing the index is partitioned further, so it takes linear expected time
+     * @param array array to select from
+     * @param k index of the element in the sorted order
+     * @return the k-th smallest element
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k >= array.length}
+     */
+    public static int select(int[] array, int k) {
+        return select(array, k, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the element which would be at the given index if the array were sorted, using the pool and
+     * the pivot choice of the given options. The array is reordered like in {@link #select(int[], int)}
+     * @param array array to select from
+     * @param k index of the element in the sorted order
+     * @param options options of this selection
+     * @return the k-th smallest element
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k >= array.length}
+     */
+    public static int select(int[] array, int k, SortOptions options) {
+        Objects.checkIndex(k, array.length);
+        var task = new QuickSortTask(array, 0, array.length, 0, options.newRandom());
+        options.getPool().invoke(ForkJoinTask.adapt(() -> task.select(k)));
+        return array[k];
+    }
+
+    /**
+     * Returns the k smallest elements of the array in ascending order. The array is reordered,
+     * so that these elements are at its beginning
+     * @param array array to select from
+     * @param k number of elements
+     * @return array of the k smallest elements
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k > array.length}
+     */
+    public static int[] topK(int[] array, int k) {
+        return topK(array, k, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the k smallest elements of the array in ascending order with the given options.
+     * The array is reordered, so that these elements are at its beginning
+     * @param array array to select from
+     * @param k number of elements
+     * @param options options of selection and of sorting of the result
+     * @return array of the k smallest elements
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k > array.length}
+     */
+    public static int[] topK(int[] array, int k, SortOptions options) {
+        Objects.checkFromToIndex(0, k, array.length);
+        if (k > 0) {
+            select(array, k - 1, options);
+        }
+        int[] result = Arrays.copyOf(array, k);
+        sort(result, options);
+        return result;
+    }
+
+    /**
+     * Returns the given percentile of the array by the nearest-rank method: the smallest element such that
+     * at least the given percent of elements are not greater than it. The array is reordered like in
+     * {@link #select(int[], int)}
+     * @param array array to compute percentile of
+     * @param percentile percentile from 0 to 100
+     * @return the percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     * @throws NoSuchElementException if the array is empty
+     */
+    public static int percentile(int[] array, double percentile) {
+        return percentile(array, percentile, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the given percentile of the array by the nearest-rank method with the given options.
+     * The array is reordered like in {@link #select(int[], int)}
+     * @param array array to compute percentile of
+     * @param percentile percentile from 0 to 100
+     * @param options options of this selection
+     * @return the percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     * @throws NoSuchElementException if the array is empty
+     */
+    public static int percentile(int[] array, double percentile, SortOptions options) {
+        return select(array, percentileIndex(array.length, percentile), options);
+    }
+
+    /**
+     * Sorts given array of longs in place in the common {@code ForkJoinPool}
+     * @param array array which is to sort
+     */
+    public static void sort(long[] array) {
+        sort(array, 0, array.length, SortOptions.defaults());
+    }
+
+    /**
+     * Sorts given array of longs in place using threads of the given pool
+     * @param array array which is to sort
+     * @param pool pool which performs sorting
+     */
+    public static void sort(long[] array, ForkJoinPool pool) {
+        sort(array, 0, array.length, SortOptions.defaults().withPool(pool));
+    }
+
+    /**
+     * Sorts given array of longs in place with the given options
+     * @param array array which is to sort
+     * @param options options of this sort
+     */
+    public static void sort(long[] array, SortOptions options) {
+        sort(array, 0, array.length, options);
+    }
+
+    /**
+     * Sorts the specified range of the given array of longs in place in the common {@code ForkJoinPool}
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     */
+    public static void sort(long[] array, int fromIndex, int toIndex) {
+        sort(array, fromIndex, toIndex, SortOptions.defaults());
+    }
+
+    /**
+     * Sorts the specified range of the given array of longs in place using threads of the given pool
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool pool which performs sorting
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     */
+    public static void sort(long[] array, int fromIndex, int toIndex, ForkJoinPool pool) {
+        sort(array, fromIndex, toIndex, SortOptions.defaults().withPool(pool));
+    }
+
+    /**
+     * Sorts the specified range of the given array of longs in place with the given options
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param options options of this sort
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     */
+    public static void sort(long[] array, int fromIndex, int toIndex, SortOptions options) {
+        Objects.checkFromToIndex(fromIndex, toIndex, array.length);
+        var runs = toIndex - fromIndex < RUN_DETECTION_THRESHOLD ? null
+                : RunMerger.findRuns(array, fromIndex, toIndex);
+        if (runs == null) {
+            sortRange(array, fromIndex, toIndex, options);
+            return;
+        }
+        if (runs.getUnsortedFrom() < toIndex) {
+            sortRange(array, runs.getUnsortedFrom(), toIndex, options);
+        }
+        RunMerger.merge(array, runs, options.getPool());
+    }
+
+    private static void sortRange(long[] array, int fromIndex, int toIndex, SortOptions options) {
+        if (isRadixSortChosen(toIndex - fromIndex, options)) {
+            RadixSort.sort(array, fromIndex, toIndex, options.getPool());
+            return;
+        }
+        int sortThreshold = options.sortThreshold(toIndex - fromIndex);
+        var task = new LongQuickSortTask(array, fromIndex, toIndex, sortThreshold, options.newRandom());
+        options.getPool().invoke(task);
+    }
+
+    /**
+     * Returns the element which would be at the given index if the array were sorted, i.e. the k-th smallest one.
+     * The array is reordered: the elements before the index are not greater than it and the ones after it
+     * are not less. Only the part containing the index is partitioned further, so it takes linear expected time
+     * @param array array to select from
+     * @param k index of the element in the sorted order
+     * @return the k-th smallest element
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k >= array.length}
+     */
+    public static long select(long[] array, int k) {
+        return select(array, k, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the element which would be at the given index if the array were sorted, using the pool and
+     * the pivot choice of the given options. The array is reordered like in {@link #select(long[], int)}
+     * @param array array to select from
+     * @param k index of the element in the sorted order
+     * @param options options of this selection
+     * @return the k-th smallest element
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k >= array.length}
+     */
+    public static long select(long[] array, int k, SortOptions options) {
+        Objects.checkIndex(k, array.length);
+        var task = new LongQuickSortTask(array, 0, array.length, 0, options.newRandom());
+        options.getPool().invoke(ForkJoinTask.adapt(() -> task.select(k)));
+        return array[k];
+    }
+
+    /**
+     * Returns the k smallest elements of the array in ascending order. The array is reordered,
+     * so that these elements are at its beginning
+     * @param array array to select from
+     * @param k number of elements
+     * @return array of the k smallest elements
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k > array.length}
+     */
+    public static long[] topK(long[] array, int k) {
+        return topK(array, k, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the k smallest elements of the array in ascending order with the given options.
+     * The array is reordered, so that these elements are at its beginning
+     * @param array array to select from
+     * @param k number of elements
+     * @param options options of selection and of sorting of the result
+     * @return array of the k smallest elements
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k > array.length}
+     */
+    public static long[] topK(long[] array, int k, SortOptions options) {
+        Objects.checkFromToIndex(0, k, array.length);
+        if (k > 0) {
+            select(array, k - 1, options);
+        }
+        long[] result = Arrays.copyOf(array, k);
+        sort(result, options);
+        return result;
+    }
+
+    /**
+     * Returns the given percentile of the array by the nearest-rank method: the smallest element such that
+     * at least the given percent of elements are not greater than it. The array is reordered like in
+     * {@link #select(long[], int)}
+     * @param array array to compute percentile of
+     * @param percentile percentile from 0 to 100
+     * @return the percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     * @throws NoSuchElementException if the array is empty
+     */
+    public static long percentile(long[] array, double percentile) {
+        return percentile(array, percentile, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the given percentile of the array by the nearest-rank method with the given options.
+     * The array is reordered like in {@link #select(long[], int)}
+     * @param array array to compute percentile of
+     * @param percentile percentile from 0 to 100
+     * @param options options of this selection
+     * @return the percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     * @throws NoSuchElementException if the array is empty
+     */
+    public static long percentile(long[] array, double percentile, SortOptions options) {
+        return select(array, percentileIndex(array.length, percentile), options);
+    }
+
+    /**
+     * Sorts given array of doubles in place in the common {@code ForkJoinPool}.
+     * The order is the same as in {@code Arrays.sort(double[])}: {@code -0.0} goes before {@code 0.0}
+     * and all {@code NaN} values are placed at the end
+     * @param array array which is to sort
+     */
+    public static void sort(double[] array) {
+        sort(array, 0, array.length, SortOptions.defaults());
+    }
+
+    /**
+     * Sorts given array of doubles in place using threads of the given pool
+     * @param array array which is to sort
+     * @param pool pool which performs sorting
+     */
+    public static void sort(double[] array, ForkJoinPool pool) {
+        sort(array, 0, array.length, SortOptions.defaults().withPool(pool));
+    }
+
+    /**
+     * Sorts given array of doubles in place with the given options
+     * @param array array which is to sort
+     * @param options options of this sort
+     */
+    public static void sort(double[] array, SortOptions options) {
+        sort(array, 0, array.length, options);
+    }
+
+    /**
+     * Sorts the specified range of the given array of doubles in place in the common {@code ForkJoinPool}.
+     * The order is the same as in {@code Arrays.sort(double[], int, int)}
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     */
+    public static void sort(double[] array, int fromIndex, int toIndex) {
+        sort(array, fromIndex, toIndex, SortOptions.defaults());
+    }
+
+    /**
+     * Sorts the specified range of the given array of doubles in place using threads of the given pool
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool pool which performs sorting
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     */
+    public static void sort(double[] array, int fromIndex, int toIndex, ForkJoinPool pool) {
+        sort(array, fromIndex, toIndex, SortOptions.defaults().withPool(pool));
+    }
+
+    /**
+     * Sorts the specified range of the given array of doubles in place with the given options
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param options options of this sort
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     */
+    public static void sort(double[] array, int fromIndex, int toIndex, SortOptions options) {
+        Objects.checkFromToIndex(fromIndex, toIndex, array.length);
+        int end = moveNaNsToEnd(array, fromIndex, toIndex);
+        var runs = end - fromIndex < RUN_DETECTION_THRESHOLD ? null : RunMerger.findRuns(array, fromIndex, end);
+        if (runs == null) {
+            sortRange(array, fromIndex, end, options);
+        } else {
+            if (runs.getUnsortedFrom() < end) {
+                sortRange(array, runs.getUnsortedFrom(), end, options);
+            }
+            RunMerger.merge(array, runs, options.getPool());
+        }
+        placeNegativeZerosFirst(array, fromIndex, end);
+    }
+
+    private static void sortRange(double[] array, int fromIndex, int toIndex, SortOptions options) {
+        int sortThreshold = options.sortThreshold(toIndex - fromIndex);
+        var task = new DoubleQuickSortTask(array, fromIndex, toIndex, sortThreshold, options.newRandom());
+        options.getPool().invoke(task);
+    }
+
+    /**
+     * Returns the element which would be at the given index if the array were sorted, i.e. the k-th smallest one.
+     * The array is reordered: the elements before the index are not greater than it and the ones after it
+     * are not less. Only the part containing the index is partitioned further, so it takes linear expected time.
+     * {@code NaN} values are greater than any other value, zeros of different signs are considered equal
+     * @param array array to select from
+     * @param k index of the element in the sorted order
+     * @return the k-th smallest element
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k >= array.length}
+     */
+    public static double select(double[] array, int k) {
+        return select(array, k, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the element which would be at the given index if the array were sorted, using the pool and
+     * the pivot choice of the given options. The array is reordered like in {@link #select(double[], int)}
+     * @param array array to select from
+     * @param k index of the element in the sorted order
+     * @param options options of this selection
+     * @return the k-th smallest element
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k >= array.length}
+     */
+    public static double select(double[] array, int k, SortOptions options) {
+        Objects.checkIndex(k, array.length);
+        int end = moveNaNsToEnd(array, 0, array.length);
+        if (k < end) {
+            var task = new DoubleQuickSortTask(array, 0, end, 0, options.newRandom());
+            options.getPool().invoke(ForkJoinTask.adapt(() -> task.select(k)));
+        }
+        return array[k];
+    }
+
+    /**
+     * Returns the k smallest elements of the array in ascending order. The array is reordered,
+     * so that these elements are at its beginning
+     * @param array array to select from
+     * @param k number of elements
+     * @return array of the k smallest elements
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k > array.length}
+     */
+    public static double[] topK(double[] array, int k) {
+        return topK(array, k, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the k smallest elements of the array in ascending order with the given options.
+     * The array is reordered, so that these elements are at its beginning
+     * @param array array to select from
+     * @param k number of elements
+     * @param options options of selection and of sorting of the result
+     * @return array of the k smallest elements
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k > array.length}
+     */
+    public static double[] topK(double[] array, int k, SortOptions options) {
+        Objects.checkFromToIndex(0, k, array.length);
+        if (k > 0) {
+            select(array, k - 1, options);
+        }
+        double[] result = Arrays.copyOf(array, k);
+        sort(result, options);
+        return result;
+    }
+
+    /**
+     * Returns the given percentile of the array by the nearest-rank method: the smallest element such that
+     * at least the given percent of elements are not greater than it. The array is reordered like in
+     * {@link #select(double[], int)}
+     * @param array array to compute percentile of
+     * @param percentile percentile from 0 to 100
+     * @return the percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     * @throws NoSuchElementException if the array is empty
+     */
+    public static double percentile(double[] array, double percentile) {
+        return percentile(array, percentile, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the given percentile of the array by the nearest-rank method with the given options.
+     * The array is reordered like in {@link #select(double[], int)}
+     * @param array array to compute percentile of
+     * @param percentile percentile from 0 to 100
+     * @param options options of this selection
+     * @return the percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     * @throws NoSuchElementException if the array is empty
+     */
+    public static double percentile(double[] array, double percentile, SortOptions options) {
+        return select(array, percentileIndex(array.length, percentile), options);
+    }
+
+    /**
+     * Sorts given array according to the order induced by the comparator in the common {@code ForkJoinPool}.
+     * The sort is not stable unless it is requested by {@link SortOptions#withStable}
+     * @param array array which is to sort
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param <T> type of elements
+     */
+    public static <T> void sort(T[] array, Comparator<? super T> comparator) {
+        sort(array, 0, array.length, comparator, SortOptions.defaults());
+    }
+
+    /**
+     * Sorts given array according to the order induced by the comparator with the given options
+     * @param array array which is to sort
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param options options of this sort
+     * @param <T> type of elements
+     */
+    public static <T> void sort(T[] array, Comparator<? super T> comparator, SortOptions options) {
+        sort(array, 0, array.length, comparator, options);
+    }
+
+    /**
+     * Sorts the specified range of the given array according to the order induced by the comparator
+     * with the given options
+     * @param array array which is to sort
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param options options of this sort
+     * @param <T> type of elements
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > array.length}
+     * or {@code fromIndex > toIndex}
+     * @throws ClassCastException if comparator is {@code null} and elements are not mutually comparable
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sort(T[] array, int fromIndex, int toIndex, Comparator<? super T> comparator,
+                                SortOptions options) {
+        Objects.checkFromToIndex(fromIndex, toIndex, array.length);
+        if (comparator == null) {
+            comparator = (Comparator<? super T>) Comparator.naturalOrder();
+        }
+        var runs = toIndex - fromIndex < RUN_DETECTION_THRESHOLD ? null
+                : RunMerger.findRuns(array, fromIndex, toIndex, comparator);
+        if (runs == null) {
+            sortRange(array, fromIndex, toIndex, comparator, options);
             return;
         }
-        int[] arrayToSort = listToSort.stream().mapToInt(Integer::intValue).toArray();
-        var threadPool = new ForkJoinPool();
-        threadPool.invoke(new QuickSortTask(arrayToSort));
+        if (runs.getUnsortedFrom() < toIndex) {
+            sortRange(array, runs.getUnsortedFrom(), toIndex, comparator, options);
+        }
+        RunMerger.merge(array, runs, comparator, options.getPool());
+    }
+
+    private static <T> void sortRange(T[] array, int fromIndex, int toIndex, Comparator<? super T> comparator,
+                                      SortOptions options) {
+        if (options.isStable()) {
+            ParallelMergeSort.sort(array, fromIndex, toIndex, comparator, options);
+        } else {
+            int sortThreshold = options.sortThreshold(toIndex - fromIndex);
+            var task = new ObjectQuickSortTask<T>(array, fromIndex, toIndex, comparator, sortThreshold,
+                    options.newRandom());
+            options.getPool().invoke(task);
+        }
+    }
+
+    /**
+     * Sorts given list according to the order induced by the comparator in the common {@code ForkJoinPool}.
+     * The sort is not stable unless it is requested by {@link SortOptions#withStable}
+     * @param list list which is to sort
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param <T> type of elements
+     */
+    public static <T> void sort(List<T> list, Comparator<? super T> comparator) {
+        sort(list, comparator, SortOptions.defaults());
+    }
+
+    /**
+     * Sorts given list according to the order induced by the comparator with the given options
+     * @param list list which is to sort
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param options options of this sort
+     * @param <T> type of elements
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sort(List<T> list, Comparator<? super T> comparator, SortOptions options) {
+        T[] array = (T[]) list.toArray();
+        sort(array, 0, array.length, comparator, options);
+
+        ListIterator<T> iterator = list.listIterator();
+        for (T element : array) {
+            iterator.next();
+            iterator.set(element);
+        }
+    }
 
-        listToSort.clear();
-        IntStream.range(0, arrayToSort.length).forEach(i -> listToSort.add(arrayToSort[i]));
+    /**
+     * Returns the element which would be at the given index if the array were sorted according to the comparator.
+     * The array is reordered: the elements before the index are not greater than it and the ones after it
+     * are not less
+     * @param array array to select from
+     * @param k index of the element in the sorted order
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param <T> type of elements
+     * @return the k-th smallest element
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k >= array.length}
+     */
+    public static <T> T select(T[] array, int k, Comparator<? super T> comparator) {
+        return select(array, k, comparator, SortOptions.defaults());
     }
 
-    private static boolean isSorted(List<Integer> list) {
-        return IntStream.range(0, list.size() - 1).allMatch(i -> list.get(i) <= list.get(i + 1));
+    /**
+     * Returns the element which would be at the given index if the array were sorted according to the comparator,
+     * using the pool and the pivot choice of the given options. The array is reordered like in
+     * {@link #select(Object[], int, Comparator)}
+     * @param array array to select from
+     * @param k index of the element in the sorted order
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param options options of this selection
+     * @param <T> type of elements
+     * @return the k-th smallest element
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k >= array.length}
+     * @throws ClassCastException if comparator is {@code null} and elements are not mutually comparable
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T select(T[] array, int k, Comparator<? super T> comparator, SortOptions options) {
+        Objects.checkIndex(k, array.length);
+        if (comparator == null) {
+            comparator = (Comparator<? super T>) Comparator.naturalOrder();
+        }
+        var task = new ObjectQuickSortTask<T>(array, 0, array.length, comparator, 0, options.newRandom());
+        options.getPool().invoke(ForkJoinTask.adapt(() -> task.select(k)));
+        return array[k];
+    }
+
+    /**
+     * Returns the k smallest elements of the array according to the comparator in ascending order.
+     * The array is reordered, so that these elements are at its beginning
+     * @param array array to select from
+     * @param k number of elements
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param <T> type of elements
+     * @return array of the k smallest elements
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k > array.length}
+     */
+    public static <T> T[] topK(T[] array, int k, Comparator<? super T> comparator) {
+        return topK(array, k, comparator, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the k smallest elements of the array according to the comparator in ascending order
+     * with the given options. The array is reordered, so that these elements are at its beginning
+     * @param array array to select from
+     * @param k number of elements
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param options options of selection and of sorting of the result
+     * @param <T> type of elements
+     * @return array of the k smallest elements
+     * @throws IndexOutOfBoundsException if {@code k < 0} or {@code k > array.length}
+     */
+    public static <T> T[] topK(T[] array, int k, Comparator<? super T> comparator, SortOptions options) {
+        Objects.checkFromToIndex(0, k, array.length);
+        if (k > 0) {
+            select(array, k - 1, comparator, options);
+        }
+        T[] result = Arrays.copyOf(array, k);
+        sort(result, comparator, options);
+        return result;
+    }
+
+    /**
+     * Returns the given percentile of the array according to the comparator by the nearest-rank method.
+     * The array is reordered like in {@link #select(Object[], int, Comparator)}
+     * @param array array to compute percentile of
+     * @param percentile percentile from 0 to 100
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param <T> type of elements
+     * @return the percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     * @throws NoSuchElementException if the array is empty
+     */
+    public static <T> T percentile(T[] array, double percentile, Comparator<? super T> comparator) {
+        return percentile(array, percentile, comparator, SortOptions.defaults());
+    }
+
+    /**
+     * Returns the given percentile of the array according to the comparator by the nearest-rank method
+     * with the given options. The array is reordered like in {@link #select(Object[], int, Comparator)}
+     * @param array array to compute percentile of
+     * @param percentile percentile from 0 to 100
+     * @param comparator comparator determining the order, {@code null} means natural ordering of elements
+     * @param options options of this selection
+     * @param <T> type of elements
+     * @return the percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     * @throws NoSuchElementException if the array is empty
+     */
+    public static <T> T percentile(T[] array, double percentile, Comparator<? super T> comparator,
+                                   SortOptions options) {
+        return select(array, percentileIndex(array.length, percentile), comparator, options);
+    }
+
+    private static boolean isRadixSortChosen(int size, SortOptions options) {
+        switch (options.getAlgorithm()) {
+            case RADIX_SORT:
+                return true;
+            case QUICK_SORT:
+                return false;
+            default:
+                return size >= RADIX_SORT_THRESHOLD;
+        }
+    }
+
+    /** Stable insertion sort of a small range **/
+    static <T> void insertionSort(T[] array, int left, int right, Comparator<? super T> comparator) {
+        for (int i = left + 1; i < right; i++) {
+            T value = array[i];
+            int j = i - 1;
+            for (; j >= left && comparator.compare(array[j], value) > 0; j--) {
+                array[j + 1] = array[j];
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    /** Returns parallelism of the pool running current task, the task may also run in a thread outside of it **/
+    private static int currentParallelism() {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /** Moves all NaN values to the end of the range and returns the index of the first of them **/
+    private static int moveNaNsToEnd(double[] array, int left, int right) {
+        int end = right;
+        for (int i = right - 1; i >= left; i--) {
+            double value = array[i];
+            if (Double.isNaN(value)) {
+                array[i] = array[--end];
+                array[end] = value;
+            }
+        }
+        return end;
+    }
+
+    /** Orders the block of zeros in a sorted range, since comparison operators do not distinguish them **/
+    private static void placeNegativeZerosFirst(double[] array, int left, int right) {
+        int low = left;
+        int high = right;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (array[middle] < 0.0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int negativeZeros = 0;
+        int end = low;
+        for (; end < right && array[end] == 0.0; end++) {
+            if (Double.doubleToRawLongBits(array[end]) < 0) {
+                negativeZeros++;
+            }
+        }
+        for (int i = low; i < end; i++) {
+            array[i] = i < low + negativeZeros ? -0.0 : 0.0;
+        }
+    }
+
+    /** Returns the index of the given percentile in the sorted array by the nearest-rank method **/
+    private static int percentileIndex(int length, double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (length == 0) {
+            throw new NoSuchElementException("Array is empty");
+        }
+        return Math.max(0, (int) Math.ceil(percentile / 100 * length) - 1);
     }
 
     private static class QuickSortTask extends RecursiveAction {
         private int[] array;
         private int left;
         private int right;
+        private int sortThreshold;
+        private SplittableRandom random;
+
+        private QuickSortTask(int[] array, int left, int right, int sortThreshold, SplittableRandom random) {
+            this.array = array;
+            this.left = left;
+            this.right = right;
+            this.sortThreshold = sortThreshold;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            int size = right - left;
+            if (size <= Math.max(sortThreshold, 1)) {
+                Arrays.sort(array, left, right);
+            } else if (size >= PARALLEL_PARTITION_THRESHOLD && currentParallelism() > 1) {
+                int blocks = currentParallelism() * BLOCKS_PER_THREAD;
+                int pivot = ParallelPartition.samplePivot(array, left, right);
+                int middle = ParallelPartition.partition(array, left, right, pivot, false, blocks);
+                if (middle > left) {
+                    invokeAll(subtask(left, middle), subtask(middle, right));
+                } else {
+                    int end = ParallelPartition.partition(array, left, right, pivot, true, blocks);
+                    subtask(end, right).invoke();
+                }
+            } else {
+                int[] pivots = partition(array, left, right);
+                int lowPivot = array[pivots[0]];
+                int highPivot = array[pivots[1]];
+                var lower = subtask(left, pivots[0]);
+                var upper = subtask(pivots[1] + 1, right);
+                if (lowPivot == highPivot) {
+                    invokeAll(lower, upper);
+                    return;
+                }
+                int[] middle = {pivots[0] + 1, pivots[1]};
+                if (middle[1] - middle[0] > size / 2) {
+                    middle = excludePivots(array, middle[0], middle[1], lowPivot, highPivot);
+                }
+                invokeAll(lower, subtask(middle[0], middle[1]), upper);
+            }
+        }
+
+        private QuickSortTask subtask(int left, int right) {
+            return new QuickSortTask(array, left, right, sortThreshold, random == null ? null : random.split());
+        }
+
+        /**
+         * Moves the element which belongs to the given index in the sorted range to it, smaller elements go
+         * before it and greater go after it. Only the part containing the index is partitioned further
+         */
+        private void select(int index) {
+            while (right - left > INSERTION_SORT_THRESHOLD) {
+                if (right - left >= PARALLEL_PARTITION_THRESHOLD && currentParallelism() > 1) {
+                    int blocks = currentParallelism() * BLOCKS_PER_THREAD;
+                    int pivot = ParallelPartition.samplePivot(array, left, right);
+                    int middle = ParallelPartition.partition(array, left, right, pivot, false, blocks);
+                    if (middle == left) {
+                        middle = ParallelPartition.partition(array, left, right, pivot, true, blocks);
+                        if (index < middle) {
+                            return;
+                        }
+                    }
+                    if (index < middle) {
+                        right = middle;
+                    } else {
+                        left = middle;
+                    }
+                } else {
+                    int[] pivots = partition(array, left, right);
+                    int lowPivot = array[pivots[0]];
+                    int highPivot = array[pivots[1]];
+                    if (index < pivots[0]) {
+                        right = pivots[0];
+                    } else if (index > pivots[1]) {
+                        left = pivots[1] + 1;
+                    } else if (index == pivots[0] || index == pivots[1] || lowPivot == highPivot) {
+                        return;
+                    } else {
+                        int[] middle = excludePivots(array, pivots[0] + 1, pivots[1], lowPivot, highPivot);
+                        if (index < middle[0] || index >= middle[1]) {
+                            return;
+                        }
+                        left = middle[0];
+                        right = middle[1];
+                    }
+                }
+            }
+            Arrays.sort(array, left, right);
+        }
+
+        /**
+         * Dual-pivot partition: the elements less than the low pivot go first, then the ones between the pivots
+         * and then the ones greater than the high pivot. Returns the positions of the pivots
+         */
+        private int[] partition(int[] array, int left, int right) {
+            int last = right - 1;
+            choosePivots(array, left, right);
+            int lowPivot = array[left];
+            int highPivot = array[last];
+            int less = left + 1;
+            int great = last - 1;
+            for (int k = less; k <= great; k++) {
+                int value = array[k];
+                if (value < lowPivot) {
+                    array[k] = array[less];
+                    array[less++] = value;
+                } else if (value > highPivot) {
+                    while (array[great] > highPivot && k < great) {
+                        great--;
+                    }
+                    array[k] = array[great];
+                    array[great--] = value;
+                    value = array[k];
+                    if (value < lowPivot) {
+                        array[k] = array[less];
+                        array[less++] = value;
+                    }
+                }
+            }
+            swap(array, left, --less);
+            swap(array, last, ++great);
+            return new int[]{less, great};
+        }
+
+        /**
+         * Moves the pivots to the ends of the range, the low one goes first. Pivots are either random or
+         * the second and the fourth of five evenly spaced elements, so no state is shared between tasks
+         */
+        private void choosePivots(int[] array, int left, int right) {
+            int size = right - left;
+            int last = right - 1;
+            if (random != null) {
+                swap(array, left, left + random.nextInt(size));
+                swap(array, last, left + random.nextInt(size));
+            } else if (size >= PIVOT_SAMPLE_SIZE + 1) {
+                int step = size / (PIVOT_SAMPLE_SIZE + 1);
+                int[] positions = new int[PIVOT_SAMPLE_SIZE];
+                for (int i = 0; i < PIVOT_SAMPLE_SIZE; i++) {
+                    positions[i] = left + (i + 1) * step;
+                    for (int j = i; j > 0 && array[positions[j - 1]] > array[positions[j]]; j--) {
+                        swap(array, positions[j - 1], positions[j]);
+                    }
+                }
+                swap(array, left, positions[1]);
+                swap(array, last, positions[3]);
+            }
+            if (array[left] > array[last]) {
+                swap(array, left, last);
+            }
+        }
+
+        /** Moves the elements equal to the pivots out of the middle part, so duplicates do not slow it down **/
+        private int[] excludePivots(int[] array, int left, int right, int lowPivot, int highPivot) {
+            int less = left;
+            int great = right - 1;
+            for (int k = less; k <= great; k++) {
+                int value = array[k];
+                if (value == lowPivot) {
+                    array[k] = array[less];
+                    array[less++] = value;
+                } else if (value == highPivot) {
+                    while (array[great] == highPivot && k < great) {
+                        great--;
+                    }
+                    array[k] = array[great];
+                    array[great--] = value;
+                    value = array[k];
+                    if (value == lowPivot) {
+                        array[k] = array[less];
+                        array[less++] = value;
+                    }
+                }
+            }
+            return new int[]{less, great + 1};
+        }
+
+        private static void swap(int[] array, int i, int j) {
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    private static class LongQuickSortTask extends RecursiveAction {
+        private long[] array;
+        private int left;
+        private int right;
+        private int sortThreshold;
+        private SplittableRandom random;
 
-        private QuickSortTask(int[] array, int left, int right) {
+        private LongQuickSortTask(long[] array, int left, int right, int sortThreshold, SplittableRandom random) {
             this.array = array;
             this.left = left;
             this.right = right;
+            this.sortThreshold = sortThreshold;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            int size = right - left;
+            if (size <= Math.max(sortThreshold, 1)) {
+                Arrays.sort(array, left, right);
+            } else if (size >= PARALLEL_PARTITION_THRESHOLD && currentParallelism() > 1) {
+                int blocks = currentParallelism() * BLOCKS_PER_THREAD;
+                long pivot = ParallelPartition.samplePivot(array, left, right);
+                int middle = ParallelPartition.partition(array, left, right, pivot, false, blocks);
+                if (middle > left) {
+                    invokeAll(subtask(left, middle), subtask(middle, right));
+                } else {
+                    int end = ParallelPartition.partition(array, left, right, pivot, true, blocks);
+                    subtask(end, right).invoke();
+                }
+            } else {
+                int[] pivots = partition(array, left, right);
+                long lowPivot = array[pivots[0]];
+                long highPivot = array[pivots[1]];
+                var lower = subtask(left, pivots[0]);
+                var upper = subtask(pivots[1] + 1, right);
+                if (lowPivot == highPivot) {
+                    invokeAll(lower, upper);
+                    return;
+                }
+                int[] middle = {pivots[0] + 1, pivots[1]};
+                if (middle[1] - middle[0] > size / 2) {
+                    middle = excludePivots(array, middle[0], middle[1], lowPivot, highPivot);
+                }
+                invokeAll(lower, subtask(middle[0], middle[1]), upper);
+            }
+        }
+
+        private LongQuickSortTask subtask(int left, int right) {
+            return new LongQuickSortTask(array, left, right, sortThreshold, random == null ? null : random.split());
         }
 
-        private QuickSortTask(int[] array) {
-            this(array, 0, array.length);
+        /**
+         * Moves the element which belongs to the given index in the sorted range to it, smaller elements go
+         * before it and greater go after it. Only the part containing the index is partitioned further
+         */
+        private void select(int index) {
+            while (right - left > INSERTION_SORT_THRESHOLD) {
+                if (right - left >= PARALLEL_PARTITION_THRESHOLD && currentParallelism() > 1) {
+                    int blocks = currentParallelism() * BLOCKS_PER_THREAD;
+                    long pivot = ParallelPartition.samplePivot(array, left, right);
+                    int middle = ParallelPartition.partition(array, left, right, pivot, false, blocks);
+                    if (middle == left) {
+                        middle = ParallelPartition.partition(array, left, right, pivot, true, blocks);
+                        if (index < middle) {
+                            return;
+                        }
+                    }
+                    if (index < middle) {
+                        right = middle;
+                    } else {
+                        left = middle;
+                    }
+                } else {
+                    int[] pivots = partition(array, left, right);
+                    long lowPivot = array[pivots[0]];
+                    long highPivot = array[pivots[1]];
+                    if (index < pivots[0]) {
+                        right = pivots[0];
+                    } else if (index > pivots[1]) {
+                        left = pivots[1] + 1;
+                    } else if (index == pivots[0] || index == pivots[1] || lowPivot == highPivot) {
+                        return;
+                    } else {
+                        int[] middle = excludePivots(array, pivots[0] + 1, pivots[1], lowPivot, highPivot);
+                        if (index < middle[0] || index >= middle[1]) {
+                            return;
+                        }
+                        left = middle[0];
+                        right = middle[1];
+                    }
+                }
+            }
+            Arrays.sort(array, left, right);
+        }
+
+        /**
+         * Dual-pivot partition: the elements less than the low pivot go first, then the ones between the pivots
+         * and then the ones greater than the high pivot. Returns the positions of the pivots
+         */
+        private int[] partition(long[] array, int left, int right) {
+            int last = right - 1;
+            choosePivots(array, left, right);
+            long lowPivot = array[left];
+            long highPivot = array[last];
+            int less = left + 1;
+            int great = last - 1;
+            for (int k = less; k <= great; k++) {
+                long value = array[k];
+                if (value < lowPivot) {
+                    array[k] = array[less];
+                    array[less++] = value;
+                } else if (value > highPivot) {
+                    while (array[great] > highPivot && k < great) {
+                        great--;
+                    }
+                    array[k] = array[great];
+                    array[great--] = value;
+                    value = array[k];
+                    if (value < lowPivot) {
+                        array[k] = array[less];
+                        array[less++] = value;
+                    }
+                }
+            }
+            swap(array, left, --less);
+            swap(array, last, ++great);
+            return new int[]{less, great};
+        }
+
+        /**
+         * Moves the pivots to the ends of the range, the low one goes first. Pivots are either random or
+         * the second and the fourth of five evenly spaced elements, so no state is shared between tasks
+         */
+        private void choosePivots(long[] array, int left, int right) {
+            int size = right - left;
+            int last = right - 1;
+            if (random != null) {
+                swap(array, left, left + random.nextInt(size));
+                swap(array, last, left + random.nextInt(size));
+            } else if (size >= PIVOT_SAMPLE_SIZE + 1) {
+                int step = size / (PIVOT_SAMPLE_SIZE + 1);
+                int[] positions = new int[PIVOT_SAMPLE_SIZE];
+                for (int i = 0; i < PIVOT_SAMPLE_SIZE; i++) {
+                    positions[i] = left + (i + 1) * step;
+                    for (int j = i; j > 0 && array[positions[j - 1]] > array[positions[j]]; j--) {
+                        swap(array, positions[j - 1], positions[j]);
+                    }
+                }
+                swap(array, left, positions[1]);
+                swap(array, last, positions[3]);
+            }
+            if (array[left] > array[last]) {
+                swap(array, left, last);
+            }
+        }
+
+        /** Moves the elements equal to the pivots out of the middle part, so duplicates do not slow it down **/
+        private int[] excludePivots(long[] array, int left, int right, long lowPivot, long highPivot) {
+            int less = left;
+            int great = right - 1;
+            for (int k = less; k <= great; k++) {
+                long value = array[k];
+                if (value == lowPivot) {
+                    array[k] = array[less];
+                    array[less++] = value;
+                } else if (value == highPivot) {
+                    while (array[great] == highPivot && k < great) {
+                        great--;
+                    }
+                    array[k] = array[great];
+                    array[great--] = value;
+                    value = array[k];
+                    if (value == lowPivot) {
+                        array[k] = array[less];
+                        array[less++] = value;
+                    }
+                }
+            }
+            return new int[]{less, great + 1};
+        }
+
+        private static void swap(long[] array, int i, int j) {
+            long tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    /** Sorts a range without NaN values; zeros of different signs are considered equal **/
+    private static class DoubleQuickSortTask extends RecursiveAction {
+        private double[] array;
+        private int left;
+        private int right;
+        private int sortThreshold;
+        private SplittableRandom random;
+
+        private DoubleQuickSortTask(double[] array, int left, int right, int sortThreshold, SplittableRandom random) {
+            this.array = array;
+            this.left = left;
+            this.right = right;
+            this.sortThreshold = sortThreshold;
+            this.random = random;
         }
 
         @Override
         protected void compute() {
-            if (right - left <= sortThreshold) {
+            int size = right - left;
+            if (size <= Math.max(sortThreshold, 1)) {
                 Arrays.sort(array, left, right);
+            } else if (size >= PARALLEL_PARTITION_THRESHOLD && currentParallelism() > 1) {
+                int blocks = currentParallelism() * BLOCKS_PER_THREAD;
+                double pivot = ParallelPartition.samplePivot(array, left, right);
+                int middle = ParallelPartition.partition(array, left, right, pivot, false, blocks);
+                if (middle > left) {
+                    invokeAll(subtask(left, middle), subtask(middle, right));
+                } else {
+                    int end = ParallelPartition.partition(array, left, right, pivot, true, blocks);
+                    subtask(end, right).invoke();
+                }
             } else {
-                int middle = partition(array, left, right);
-                invokeAll(new QuickSortTask(array, left, middle), new QuickSortTask(array, middle, right));
+                int[] pivots = partition(array, left, right);
+                double lowPivot = array[pivots[0]];
+                double highPivot = array[pivots[1]];
+                var lower = subtask(left, pivots[0]);
+                var upper = subtask(pivots[1] + 1, right);
+                if (lowPivot == highPivot) {
+                    invokeAll(lower, upper);
+                    return;
+                }
+                int[] middle = {pivots[0] + 1, pivots[1]};
+                if (middle[1] - middle[0] > size / 2) {
+                    middle = excludePivots(array, middle[0], middle[1], lowPivot, highPivot);
+                }
+                invokeAll(lower, subtask(middle[0], middle[1]), upper);
             }
         }
 
-        private int partition(int[] array, int left, int right) {
-            int i = left;
-            int j = right - 1;
-            int pivot = array[left + random.nextInt(right - left)];
-            while (i <= j) {
-                while (array[i] < pivot) {
-                    i++;
+        private DoubleQuickSortTask subtask(int left, int right) {
+            return new DoubleQuickSortTask(array, left, right, sortThreshold, random == null ? null : random.split());
+        }
+
+        /**
+         * Moves the element which belongs to the given index in the sorted range to it, smaller elements go
+         * before it and greater go after it. Only the part containing the index is partitioned further
+         */
+        private void select(int index) {
+            while (right - left > INSERTION_SORT_THRESHOLD) {
+                if (right - left >= PARALLEL_PARTITION_THRESHOLD && currentParallelism() > 1) {
+                    int blocks = currentParallelism() * BLOCKS_PER_THREAD;
+                    double pivot = ParallelPartition.samplePivot(array, left, right);
+                    int middle = ParallelPartition.partition(array, left, right, pivot, false, blocks);
+                    if (middle == left) {
+                        middle = ParallelPartition.partition(array, left, right, pivot, true, blocks);
+                        if (index < middle) {
+                            return;
+                        }
+                    }
+                    if (index < middle) {
+                        right = middle;
+                    } else {
+                        left = middle;
+                    }
+                } else {
+                    int[] pivots = partition(array, left, right);
+                    double lowPivot = array[pivots[0]];
+                    double highPivot = array[pivots[1]];
+                    if (index < pivots[0]) {
+                        right = pivots[0];
+                    } else if (index > pivots[1]) {
+                        left = pivots[1] + 1;
+                    } else if (index == pivots[0] || index == pivots[1] || lowPivot == highPivot) {
+                        return;
+                    } else {
+                        int[] middle = excludePivots(array, pivots[0] + 1, pivots[1], lowPivot, highPivot);
+                        if (index < middle[0] || index >= middle[1]) {
+                            return;
+                        }
+                        left = middle[0];
+                        right = middle[1];
+                    }
                 }
-                while (array[j] > pivot) {
-                    j--;
+            }
+            Arrays.sort(array, left, right);
+        }
+
+        /**
+         * Dual-pivot partition: the elements less than the low pivot go first, then the ones between the pivots
+         * and then the ones greater than the high pivot. Returns the positions of the pivots
+         */
+        private int[] partition(double[] array, int left, int right) {
+            int last = right - 1;
+            choosePivots(array, left, right);
+            double lowPivot = array[left];
+            double highPivot = array[last];
+            int less = left + 1;
+            int great = last - 1;
+            for (int k = less; k <= great; k++) {
+                double value = array[k];
+                if (value < lowPivot) {
+                    array[k] = array[less];
+                    array[less++] = value;
+                } else if (value > highPivot) {
+                    while (array[great] > highPivot && k < great) {
+                        great--;
+                    }
+                    array[k] = array[great];
+                    array[great--] = value;
+                    value = array[k];
+                    if (value < lowPivot) {
+                        array[k] = array[less];
+                        array[less++] = value;
+                    }
                 }
-                if (i <= j) {
-                    int tmp = array[i];
-                    array[i] = array[j];
-                    array[j] = tmp;
-                    i++;
-                    j--;
+            }
+            swap(array, left, --less);
+            swap(array, last, ++great);
+            return new int[]{less, great};
+        }
+
+        /**
+         * Moves the pivots to the ends of the range, the low one goes first. Pivots are either random or
+         * the second and the fourth of five evenly spaced elements, so no state is shared between tasks
+         */
+        private void choosePivots(double[] array, int left, int right) {
+            int size = right - left;
+            int last = right - 1;
+            if (random != null) {
+                swap(array, left, left + random.nextInt(size));
+                swap(array, last, left + random.nextInt(size));
+            } else if (size >= PIVOT_SAMPLE_SIZE + 1) {
+                int step = size / (PIVOT_SAMPLE_SIZE + 1);
+                int[] positions = new int[PIVOT_SAMPLE_SIZE];
+                for (int i = 0; i < PIVOT_SAMPLE_SIZE; i++) {
+                    positions[i] = left + (i + 1) * step;
+                    for (int j = i; j > 0 && array[positions[j - 1]] > array[positions[j]]; j--) {
+                        swap(array, positions[j - 1], positions[j]);
+                    }
                 }
+                swap(array, left, positions[1]);
+                swap(array, last, positions[3]);
+            }
+            if (array[left] > array[last]) {
+                swap(array, left, last);
             }
-            return j + 1;
+        }
+
+        /** Moves the elements equal to the pivots out of the middle part, so duplicates do not slow it down **/
+        private int[] excludePivots(double[] array, int left, int right, double lowPivot, double highPivot) {
+            int less = left;
+            int great = right - 1;
+            for (int k = less; k <= great; k++) {
+                double value = array[k];
+                if (value == lowPivot) {
+                    array[k] = array[less];
+                    array[less++] = value;
+                } else if (value == highPivot) {
+                    while (array[great] == highPivot && k < great) {
+                        great--;
+                    }
+                    array[k] = array[great];
+                    array[great--] = value;
+                    value = array[k];
+                    if (value == lowPivot) {
+                        array[k] = array[less];
+                        array[less++] = value;
+                    }
+                }
+            }
+            return new int[]{less, great + 1};
+        }
+
+        private static void swap(double[] array, int i, int j) {
+            double tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    /** Sorts a range of objects; ranges below the threshold are sorted sequentially down to the insertion sort **/
+    private static class ObjectQuickSortTask<T> extends RecursiveAction {
+        private T[] array;
+        private int left;
+        private int right;
+        private Comparator<? super T> comparator;
+        private int sortThreshold;
+        private SplittableRandom random;
+
+        private ObjectQuickSortTask(T[] array, int left, int right, Comparator<? super T> comparator,
+                                    int sortThreshold, SplittableRandom random) {
+            this.array = array;
+            this.left = left;
+            this.right = right;
+            this.comparator = comparator;
+            this.sortThreshold = sortThreshold;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            int size = right - left;
+            if (size <= Math.max(sortThreshold, INSERTION_SORT_THRESHOLD)) {
+                sortSequentially(left, right);
+            } else if (size >= PARALLEL_PARTITION_THRESHOLD && currentParallelism() > 1) {
+                int blocks = currentParallelism() * BLOCKS_PER_THREAD;
+                T pivot = ParallelPartition.samplePivot(array, left, right, comparator);
+                int middle = ParallelPartition.partition(array, left, right, pivot, false, blocks, comparator);
+                if (middle > left) {
+                    invokeAll(subtask(left, middle), subtask(middle, right));
+                } else {
+                    int end = ParallelPartition.partition(array, left, right, pivot, true, blocks, comparator);
+                    subtask(end, right).invoke();
+                }
+            } else {
+                int[] bounds = partition(left, right);
+                var lower = subtask(left, bounds[0]);
+                var upper = subtask(bounds[3], right);
+                if (bounds[1] < bounds[2]) {
+                    invokeAll(lower, subtask(bounds[1], bounds[2]), upper);
+                } else {
+                    invokeAll(lower, upper);
+                }
+            }
+        }
+
+        private ObjectQuickSortTask<T> subtask(int left, int right) {
+            return new ObjectQuickSortTask<>(array, left, right, comparator, sortThreshold,
+                    random == null ? null : random.split());
+        }
+
+        /**
+         * Moves the element which belongs to the given index in the sorted range to it, smaller elements go
+         * before it and greater go after it. Only the part containing the index is partitioned further
+         */
+        private void select(int index) {
+            while (right - left > INSERTION_SORT_THRESHOLD) {
+                if (right - left >= PARALLEL_PARTITION_THRESHOLD && currentParallelism() > 1) {
+                    int blocks = currentParallelism() * BLOCKS_PER_THREAD;
+                    T pivot = ParallelPartition.samplePivot(array, left, right, comparator);
+                    int middle = ParallelPartition.partition(array, left, right, pivot, false, blocks, comparator);
+                    if (middle == left) {
+                        middle = ParallelPartition.partition(array, left, right, pivot, true, blocks, comparator);
+                        if (index < middle) {
+                            return;
+                        }
+                    }
+                    if (index < middle) {
+                        right = middle;
+                    } else {
+                        left = middle;
+                    }
+                } else {
+                    int[] bounds = partition(left, right);
+                    if (index < bounds[0]) {
+                        right = bounds[0];
+                    } else if (index >= bounds[3]) {
+                        left = bounds[3];
+                    } else if (index >= bounds[1] && index < bounds[2]) {
+                        left = bounds[1];
+                        right = bounds[2];
+                    } else {
+                        return;
+                    }
+                }
+            }
+            insertionSort(array, left, right, comparator);
+        }
+
+        private void sortSequentially(int left, int right) {
+            if (right - left <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(array, left, right, comparator);
+                return;
+            }
+            int[] bounds = partition(left, right);
+            sortSequentially(left, bounds[0]);
+            sortSequentially(bounds[1], bounds[2]);
+            sortSequentially(bounds[3], right);
+        }
+
+        /**
+         * Dual-pivot partition. Returns the bounds of the parts which are left to sort: the elements less than
+         * the low pivot, the ones between the pivots (excluding the ones equal to them) and the ones greater
+         * than the high pivot
+         */
+        private int[] partition(int left, int right) {
+            int last = right - 1;
+            choosePivots(left, right);
+            T lowPivot = array[left];
+            T highPivot = array[last];
+            int less = left + 1;
+            int great = last - 1;
+            for (int k = less; k <= great; k++) {
+                T value = array[k];
+                if (comparator.compare(value, lowPivot) < 0) {
+                    array[k] = array[less];
+                    array[less++] = value;
+                } else if (comparator.compare(value, highPivot) > 0) {
+                    while (comparator.compare(array[great], highPivot) > 0 && k < great) {
+                        great--;
+                    }
+                    array[k] = array[great];
+                    array[great--] = value;
+                    value = array[k];
+                    if (comparator.compare(value, lowPivot) < 0) {
+                        array[k] = array[less];
+                        array[less++] = value;
+                    }
+                }
+            }
+            swap(array, left, --less);
+            swap(array, last, ++great);
+            if (comparator.compare(lowPivot, highPivot) == 0) {
+                return new int[]{less, great, great, great + 1};
+            }
+            int[] middle = {less + 1, great};
+            if (middle[1] - middle[0] > (right - left) / 2) {
+                middle = excludePivots(middle[0], middle[1], lowPivot, highPivot);
+            }
+            return new int[]{less, middle[0], middle[1], great + 1};
+        }
+
+        /** Moves the pivots to the ends of the range, the low one goes first **/
+        private void choosePivots(int left, int right) {
+            int size = right - left;
+            int last = right - 1;
+            if (random != null) {
+                swap(array, left, left + random.nextInt(size));
+                swap(array, last, left + random.nextInt(size));
+            } else if (size >= PIVOT_SAMPLE_SIZE + 1) {
+                int step = size / (PIVOT_SAMPLE_SIZE + 1);
+                int[] positions = new int[PIVOT_SAMPLE_SIZE];
+                for (int i = 0; i < PIVOT_SAMPLE_SIZE; i++) {
+                    positions[i] = left + (i + 1) * step;
+                    for (int j = i; j > 0; j--) {
+                        if (comparator.compare(array[positions[j - 1]], array[positions[j]]) <= 0) {
+                            break;
+                        }
+                        swap(array, positions[j - 1], positions[j]);
+                    }
+                }
+                swap(array, left, positions[1]);
+                swap(array, last, positions[3]);
+            }
+            if (comparator.compare(array[left], array[last]) > 0) {
+                swap(array, left, last);
+            }
+        }
+
+        /** Moves the elements equal to the pivots out of the middle part, so duplicates do not slow it down **/
+        private int[] excludePivots(int left, int right, T lowPivot, T highPivot) {
+            int less = left;
+            int great = right - 1;
+            for (int k = less; k <= great; k++) {
+                T value = array[k];
+                if (comparator.compare(value, lowPivot) == 0) {
+                    array[k] = array[less];
+                    array[less++] = value;
+                } else if (comparator.compare(value, highPivot) == 0) {
+                    while (comparator.compare(array[great], highPivot) == 0 && k < great) {
+                        great--;
+                    }
+                    array[k] = array[great];
+                    array[great--] = value;
+                    value = array[k];
+                    if (comparator.compare(value, lowPivot) == 0) {
+                        array[k] = array[less];
+                        array[less++] = value;
+                    }
+                }
+            }
+            return new int[]{less, great + 1};
+        }
+
+        private static void swap(Object[] array, int i, int j) {
+            Object tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+package ru.hse.kuzyaka.qsort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parallel LSD radix sort of integer keys used by {@code QuickSort} for large arrays.
+ * Every pass over a digit counts digits of each block in parallel, then each block scatters its elements
+ * to the positions computed from the counts, so the passes are stable. Passes over digits which are
+ * the same for all elements are skipped. Needs a buffer of the size of the sorted range
+ **/
+final class RadixSort {
+    private static final int DIGIT_BITS = 8;
+    private static final int RADIX = 1 << DIGIT_BITS;
+    private static final int MASK = RADIX - 1;
+    private static final int MIN_BLOCK_SIZE = 1 << 14;
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private RadixSort() {
+    }
+
+    /**
+     * Sorts the specified range of the given array using threads of the given pool
+     * @param array array which is to sort
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @param pool pool which performs sorting
+     */
+    static void sort(int[] array, int left, int right, ForkJoinPool pool) {
+        pool.invoke(ForkJoinTask.adapt(() -> sortInPool(array, left, right, pool.getParallelism())));
+    }
+
+    private static void sortInPool(int[] array, int left, int right, int parallelism) {
+        int size = right - left;
+        int blocks = blockCount(size, parallelism);
+        int blockSize = (size + blocks - 1) / blocks;
+        int[][] counts = new int[blocks][RADIX];
+        int[] source = array;
+        int[] destination = new int[size];
+        int sourceOffset = left;
+        int destinationOffset = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += DIGIT_BITS) {
+            int digitShift = shift;
+            int sign = shift + DIGIT_BITS == Integer.SIZE ? RADIX >>> 1 : 0;
+            int[] from = source;
+            int[] to = destination;
+            int fromOffset = sourceOffset;
+            forEachBlock(blocks, block -> {
+                int[] blockCounts = counts[block];
+                Arrays.fill(blockCounts, 0);
+                int begin = fromOffset + block * blockSize;
+                int end = Math.min(fromOffset + size, begin + blockSize);
+                for (int i = begin; i < end; i++) {
+                    blockCounts[((from[i] >>> digitShift) & MASK) ^ sign]++;
+                }
+            });
+            if (!computePositions(counts, size, destinationOffset)) {
+                continue;
+            }
+            forEachBlock(blocks, block -> {
+                int[] positions = counts[block];
+                int begin = fromOffset + block * blockSize;
+                int end = Math.min(fromOffset + size, begin + blockSize);
+                for (int i = begin; i < end; i++) {
+                    int value = from[i];
+                    to[positions[((value >>> digitShift) & MASK) ^ sign]++] = value;
+                }
+            });
+            source = to;
+            destination = from;
+            sourceOffset = destinationOffset;
+            destinationOffset = fromOffset;
+        }
+        if (source != array) {
+            int[] result = source;
+            forEachBlock(blocks, block -> {
+                int begin = block * blockSize;
+                int length = Math.min(size, begin + blockSize) - begin;
+                if (length > 0) {
+                    System.arraycopy(result, begin, array, left + begin, length);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sorts the specified range of the given array using threads of the given pool
+     * @param array array which is to sort
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @param pool pool which performs sorting
+     */
+    static void sort(long[] array, int left, int right, ForkJoinPool pool) {
+        pool.invoke(ForkJoinTask.adapt(() -> sortInPool(array, left, right, pool.getParallelism())));
+    }
+
+    private static void sortInPool(long[] array, int left, int right, int parallelism) {
+        int size = right - left;
+        int blocks = blockCount(size, parallelism);
+        int blockSize = (size + blocks - 1) / blocks;
+        int[][] counts = new int[blocks][RADIX];
+        long[] source = array;
+        long[] destination = new long[size];
+        int sourceOffset = left;
+        int destinationOffset = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += DIGIT_BITS) {
+            int digitShift = shift;
+            int sign = shift + DIGIT_BITS == Long.SIZE ? RADIX >>> 1 : 0;
+            long[] from = source;
+            long[] to = destination;
+            int fromOffset = sourceOffset;
+            forEachBlock(blocks, block -> {
+                int[] blockCounts = counts[block];
+                Arrays.fill(blockCounts, 0);
+                int begin = fromOffset + block * blockSize;
+                int end = Math.min(fromOffset + size, begin + blockSize);
+                for (int i = begin; i < end; i++) {
+                    blockCounts[((int) (from[i] >>> digitShift) & MASK) ^ sign]++;
+                }
+            });
+            if (!computePositions(counts, size, destinationOffset)) {
+                continue;
+            }
+            forEachBlock(blocks, block -> {
+                int[] positions = counts[block];
+                int begin = fromOffset + block * blockSize;
+                int end = Math.min(fromOffset + size, begin + blockSize);
+                for (int i = begin; i < end; i++) {
+                    long value = from[i];
+                    to[positions[((int) (value >>> digitShift) & MASK) ^ sign]++] = value;
+                }
+            });
+            source = to;
+            destination = from;
+            sourceOffset = destinationOffset;
+            destinationOffset = fromOffset;
+        }
+        if (source != array) {
+            long[] result = source;
+            forEachBlock(blocks, block -> {
+                int begin = block * blockSize;
+                int length = Math.min(size, begin + blockSize) - begin;
+                if (length > 0) {
+                    System.arraycopy(result, begin, array, left + begin, length);
+                }
+            });
+        }
+    }
+
+    private static int blockCount(int size, int parallelism) {
+        int blocks = Math.min(parallelism * BLOCKS_PER_THREAD, (size + MIN_BLOCK_SIZE - 1) / MIN_BLOCK_SIZE);
+        return Math.max(blocks, 1);
+    }
+
+    /**
+     * Replaces the counts of digits in blocks with the positions where the elements of the blocks go.
+     * Returns {@code false} if all elements have the same digit, so the pass can be skipped
+     */
+    private static boolean computePositions(int[][] counts, int size, int offset) {
+        int position = offset;
+        for (int digit = 0; digit < RADIX; digit++) {
+            int total = 0;
+            for (int[] blockCounts : counts) {
+                int count = blockCounts[digit];
+                blockCounts[digit] = position + total;
+                total += count;
+            }
+            if (total == size) {
+                return false;
+            }
+            position += total;
+        }
+        return true;
+    }
+
+    private static void forEachBlock(int blocks, BlockAction action) {
+        if (blocks == 1) {
+            action.run(0);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int block = i;
+            tasks.add(ForkJoinTask.adapt(() -> action.run(block)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    private interface BlockAction {
+        void run(int block);
+    }
+}
@@ -0,0 +1,577 @@
+package ru.hse.kuzyaka.qsort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Detection and parallel merging of presorted runs used by {@code QuickSort} instead of a full sort.
+ * Ascending runs are taken as they are and strictly descending ones are reversed, so the order of equal
+ * elements is kept. A range consisting of a few runs is merged in O(n log(runs)); a long presorted prefix
+ * followed by an unsorted tail (e.g. an append-mostly log) is handled by sorting the tail and merging it.
+ * Scanning stops early if runs are short, so random input costs only a short scan of its beginning.
+ * Runs are merged pairwise in passes alternating between the array and a copy of the range, merges of one pass
+ * run in parallel and large merges are split further. Objects are merged by the task of {@code ParallelMergeSort}
+ **/
+final class RunMerger {
+    private static final int MAX_RUN_COUNT = 256;
+    private static final int MIN_CHECKED_RUN_COUNT = 16;
+    private static final int MIN_AVERAGE_RUN_LENGTH = 64;
+    private static final int MERGE_THRESHOLD = 1 << 13;
+
+    private RunMerger() {
+    }
+
+    /**
+     * Finds runs in the specified range, reversing descending ones
+     * @param array array to look into
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @return runs of the range or {@code null} if the range does not look presorted
+     */
+    static Runs findRuns(int[] array, int left, int right) {
+        int[] bounds = new int[MAX_RUN_COUNT + 2];
+        bounds[0] = left;
+        int count = 0;
+        int i = left;
+        while (i < right) {
+            if (count >= MAX_RUN_COUNT || count >= MIN_CHECKED_RUN_COUNT && i - left < count * MIN_AVERAGE_RUN_LENGTH) {
+                if (i - left < (right - left) / 2) {
+                    return null;
+                }
+                bounds[++count] = right;
+                return new Runs(bounds, count, i);
+            }
+            int start = i++;
+            if (i < right && array[i] < array[start]) {
+                while (i < right && array[i] < array[i - 1]) {
+                    i++;
+                }
+                reverse(array, start, i);
+            } else {
+                while (i < right && array[i] >= array[i - 1]) {
+                    i++;
+                }
+            }
+            if (count > 0 && array[start] >= array[start - 1]) {
+                bounds[count] = i;
+            } else {
+                bounds[++count] = i;
+            }
+        }
+        return new Runs(bounds, count, right);
+    }
+
+    /**
+     * Merges the sorted runs of a range, the unsorted tail must be sorted before
+     * @param array array containing the runs
+     * @param runs runs to merge
+     * @param pool pool which performs merging
+     */
+    static void merge(int[] array, Runs runs, ForkJoinPool pool) {
+        if (runs.count > 1) {
+            int left = runs.bounds[0];
+            int[] buffer = Arrays.copyOfRange(array, left, runs.bounds[runs.count]);
+            mergeRuns(runs, pool, (fromBuffer, from, middle, to) -> fromBuffer
+                    ? new IntMergeTask(buffer, array, from - left, middle - left, middle - left,
+                            to - left, from)
+                    : new IntMergeTask(array, buffer, from, middle, middle, to,
+                            from - left));
+        }
+    }
+
+    private static void reverse(int[] array, int left, int right) {
+        for (int i = left, j = right - 1; i < j; i++, j--) {
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    private static void merge(int[] source, int firstLeft, int firstRight, int secondLeft, int secondRight,
+                              int[] destination, int destinationLeft) {
+        int i = firstLeft;
+        int j = secondLeft;
+        int k = destinationLeft;
+        while (i < firstRight && j < secondRight) {
+            if (source[j] < source[i]) {
+                destination[k++] = source[j++];
+            } else {
+                destination[k++] = source[i++];
+            }
+        }
+        System.arraycopy(source, i, destination, k, firstRight - i);
+        System.arraycopy(source, j, destination, k + firstRight - i, secondRight - j);
+    }
+
+    /** Merges two sorted ranges of {@code source} into {@code destination}, the first range wins ties **/
+    private static class IntMergeTask extends RecursiveAction {
+        private int[] source;
+        private int[] destination;
+        private int firstLeft;
+        private int firstRight;
+        private int secondLeft;
+        private int secondRight;
+        private int destinationLeft;
+
+        private IntMergeTask(int[] source, int[] destination, int firstLeft, int firstRight, int secondLeft,
+                          int secondRight, int destinationLeft) {
+            this.source = source;
+            this.destination = destination;
+            this.firstLeft = firstLeft;
+            this.firstRight = firstRight;
+            this.secondLeft = secondLeft;
+            this.secondRight = secondRight;
+            this.destinationLeft = destinationLeft;
+        }
+
+        @Override
+        protected void compute() {
+            int firstSize = firstRight - firstLeft;
+            int secondSize = secondRight - secondLeft;
+            if (firstSize + secondSize <= MERGE_THRESHOLD || firstSize == 0 || secondSize == 0) {
+                merge(source, firstLeft, firstRight, secondLeft, secondRight, destination, destinationLeft);
+                return;
+            }
+            int firstMiddle;
+            int secondMiddle;
+            if (firstSize >= secondSize) {
+                firstMiddle = (firstLeft + firstRight) >>> 1;
+                secondMiddle = secondLeft;
+                for (int high = secondRight; secondMiddle < high; ) {
+                    int middle = (secondMiddle + high) >>> 1;
+                    if (source[middle] < source[firstMiddle]) {
+                        secondMiddle = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+            } else {
+                secondMiddle = (secondLeft + secondRight) >>> 1;
+                firstMiddle = firstLeft;
+                for (int high = firstRight; firstMiddle < high; ) {
+                    int middle = (firstMiddle + high) >>> 1;
+                    if (source[secondMiddle] >= source[middle]) {
+                        firstMiddle = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+            }
+            int destinationMiddle = destinationLeft + (firstMiddle - firstLeft) + (secondMiddle - secondLeft);
+            invokeAll(new IntMergeTask(source, destination, firstLeft, firstMiddle, secondLeft, secondMiddle,
+                            destinationLeft),
+                    new IntMergeTask(source, destination, firstMiddle, firstRight, secondMiddle, secondRight,
+                            destinationMiddle));
+        }
+    }
+
+    /**
+     * Finds runs in the specified range, reversing descending ones
+     * @param array array to look into
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @return runs of the range or {@code null} if the range does not look presorted
+     */
+    static Runs findRuns(long[] array, int left, int right) {
+        int[] bounds = new int[MAX_RUN_COUNT + 2];
+        bounds[0] = left;
+        int count = 0;
+        int i = left;
+        while (i < right) {
+            if (count >= MAX_RUN_COUNT || count >= MIN_CHECKED_RUN_COUNT && i - left < count * MIN_AVERAGE_RUN_LENGTH) {
+                if (i - left < (right - left) / 2) {
+                    return null;
+                }
+                bounds[++count] = right;
+                return new Runs(bounds, count, i);
+            }
+            int start = i++;
+            if (i < right && array[i] < array[start]) {
+                while (i < right && array[i] < array[i - 1]) {
+                    i++;
+                }
+                reverse(array, start, i);
+            } else {
+                while (i < right && array[i] >= array[i - 1]) {
+                    i++;
+                }
+            }
+            if (count > 0 && array[start] >= array[start - 1]) {
+                bounds[count] = i;
+            } else {
+                bounds[++count] = i;
+            }
+        }
+        return new Runs(bounds, count, right);
+    }
+
+    /**
+     * Merges the sorted runs of a range, the unsorted tail must be sorted before
+     * @param array array containing the runs
+     * @param runs runs to merge
+     * @param pool pool which performs merging
+     */
+    static void merge(long[] array, Runs runs, ForkJoinPool pool) {
+        if (runs.count > 1) {
+            int left = runs.bounds[0];
+            long[] buffer = Arrays.copyOfRange(array, left, runs.bounds[runs.count]);
+            mergeRuns(runs, pool, (fromBuffer, from, middle, to) -> fromBuffer
+                    ? new LongMergeTask(buffer, array, from - left, middle - left, middle - left,
+                            to - left, from)
+                    : new LongMergeTask(array, buffer, from, middle, middle, to,
+                            from - left));
+        }
+    }
+
+    private static void reverse(long[] array, int left, int right) {
+        for (int i = left, j = right - 1; i < j; i++, j--) {
+            long tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    private static void merge(long[] source, int firstLeft, int firstRight, int secondLeft, int secondRight,
+                              long[] destination, int destinationLeft) {
+        int i = firstLeft;
+        int j = secondLeft;
+        int k = destinationLeft;
+        while (i < firstRight && j < secondRight) {
+            if (source[j] < source[i]) {
+                destination[k++] = source[j++];
+            } else {
+                destination[k++] = source[i++];
+            }
+        }
+        System.arraycopy(source, i, destination, k, firstRight - i);
+        System.arraycopy(source, j, destination, k + firstRight - i, secondRight - j);
+    }
+
+    /** Merges two sorted ranges of {@code source} into {@code destination}, the first range wins ties **/
+    private static class LongMergeTask extends RecursiveAction {
+        private long[] source;
+        private long[] destination;
+        private int firstLeft;
+        private int firstRight;
+        private int secondLeft;
+        private int secondRight;
+        private int destinationLeft;
+
+        private LongMergeTask(long[] source, long[] destination, int firstLeft, int firstRight, int secondLeft,
+                          int secondRight, int destinationLeft) {
+            this.source = source;
+            this.destination = destination;
+            this.firstLeft = firstLeft;
+            this.firstRight = firstRight;
+            this.secondLeft = secondLeft;
+            this.secondRight = secondRight;
+            this.destinationLeft = destinationLeft;
+        }
+
+        @Override
+        protected void compute() {
+            int firstSize = firstRight - firstLeft;
+            int secondSize = secondRight - secondLeft;
+            if (firstSize + secondSize <= MERGE_THRESHOLD || firstSize == 0 || secondSize == 0) {
+                merge(source, firstLeft, firstRight, secondLeft, secondRight, destination, destinationLeft);
+                return;
+            }
+            int firstMiddle;
+            int secondMiddle;
+            if (firstSize >= secondSize) {
+                firstMiddle = (firstLeft + firstRight) >>> 1;
+                secondMiddle = secondLeft;
+                for (int high = secondRight; secondMiddle < high; ) {
+                    int middle = (secondMiddle + high) >>> 1;
+                    if (source[middle] < source[firstMiddle]) {
+                        secondMiddle = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+            } else {
+                secondMiddle = (secondLeft + secondRight) >>> 1;
+                firstMiddle = firstLeft;
+                for (int high = firstRight; firstMiddle < high; ) {
+                    int middle = (firstMiddle + high) >>> 1;
+                    if (source[secondMiddle] >= source[middle]) {
+                        firstMiddle = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+            }
+            int destinationMiddle = destinationLeft + (firstMiddle - firstLeft) + (secondMiddle - secondLeft);
+            invokeAll(new LongMergeTask(source, destination, firstLeft, firstMiddle, secondLeft, secondMiddle,
+                            destinationLeft),
+                    new LongMergeTask(source, destination, firstMiddle, firstRight, secondMiddle, secondRight,
+                            destinationMiddle));
+        }
+    }
+
+    /**
+     * Finds runs in the specified range, reversing descending ones
+     * @param array array to look into
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @return runs of the range or {@code null} if the range does not look presorted
+     */
+    static Runs findRuns(double[] array, int left, int right) {
+        int[] bounds = new int[MAX_RUN_COUNT + 2];
+        bounds[0] = left;
+        int count = 0;
+        int i = left;
+        while (i < right) {
+            if (count >= MAX_RUN_COUNT || count >= MIN_CHECKED_RUN_COUNT && i - left < count * MIN_AVERAGE_RUN_LENGTH) {
+                if (i - left < (right - left) / 2) {
+                    return null;
+                }
+                bounds[++count] = right;
+                return new Runs(bounds, count, i);
+            }
+            int start = i++;
+            if (i < right && array[i] < array[start]) {
+                while (i < right && array[i] < array[i - 1]) {
+                    i++;
+                }
+                reverse(array, start, i);
+            } else {
+                while (i < right && array[i] >= array[i - 1]) {
+                    i++;
+                }
+            }
+            if (count > 0 && array[start] >= array[start - 1]) {
+                bounds[count] = i;
+            } else {
+                bounds[++count] = i;
+            }
+        }
+        return new Runs(bounds, count, right);
+    }
+
+    /**
+     * Merges the sorted runs of a range, the unsorted tail must be sorted before
+     * @param array array containing the runs
+     * @param runs runs to merge
+     * @param pool pool which performs merging
+     */
+    static void merge(double[] array, Runs runs, ForkJoinPool pool) {
+        if (runs.count > 1) {
+            int left = runs.bounds[0];
+            double[] buffer = Arrays.copyOfRange(array, left, runs.bounds[runs.count]);
+            mergeRuns(runs, pool, (fromBuffer, from, middle, to) -> fromBuffer
+                    ? new DoubleMergeTask(buffer, array, from - left, middle - left, middle - left,
+                            to - left, from)
+                    : new DoubleMergeTask(array, buffer, from, middle, middle, to,
+                            from - left));
+        }
+    }
+
+    private static void reverse(double[] array, int left, int right) {
+        for (int i = left, j = right - 1; i < j; i++, j--) {
+            double tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    private static void merge(double[] source, int firstLeft, int firstRight, int secondLeft, int secondRight,
+                              double[] destination, int destinationLeft) {
+        int i = firstLeft;
+        int j = secondLeft;
+        int k = destinationLeft;
+        while (i < firstRight && j < secondRight) {
+            if (source[j] < source[i]) {
+                destination[k++] = source[j++];
+            } else {
+                destination[k++] = source[i++];
+            }
+        }
+        System.arraycopy(source, i, destination, k, firstRight - i);
+        System.arraycopy(source, j, destination, k + firstRight - i, secondRight - j);
+    }
+
+    /** Merges two sorted ranges of {@code source} into {@code destination}, the first range wins ties **/
+    private static class DoubleMergeTask extends RecursiveAction {
+        private double[] source;
+        private double[] destination;
+        private int firstLeft;
+        private int firstRight;
+        private int secondLeft;
+        private int secondRight;
+        private int destinationLeft;
+
+        private DoubleMergeTask(double[] source, double[] destination, int firstLeft, int firstRight, int secondLeft,
+                          int secondRight, int destinationLeft) {
+            this.source = source;
+            this.destination = destination;
+            this.firstLeft = firstLeft;
+            this.firstRight = firstRight;
+            this.secondLeft = secondLeft;
+            this.secondRight = secondRight;
+            this.destinationLeft = destinationLeft;
+        }
+
+        @Override
+        protected void compute() {
+            int firstSize = firstRight - firstLeft;
+            int secondSize = secondRight - secondLeft;
+            if (firstSize + secondSize <= MERGE_THRESHOLD || firstSize == 0 || secondSize == 0) {
+                merge(source, firstLeft, firstRight, secondLeft, secondRight, destination, destinationLeft);
+                return;
+            }
+            int firstMiddle;
+            int secondMiddle;
+            if (firstSize >= secondSize) {
+                firstMiddle = (firstLeft + firstRight) >>> 1;
+                secondMiddle = secondLeft;
+                for (int high = secondRight; secondMiddle < high; ) {
+                    int middle = (secondMiddle + high) >>> 1;
+                    if (source[middle] < source[firstMiddle]) {
+                        secondMiddle = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+            } else {
+                secondMiddle = (secondLeft + secondRight) >>> 1;
+                firstMiddle = firstLeft;
+                for (int high = firstRight; firstMiddle < high; ) {
+                    int middle = (firstMiddle + high) >>> 1;
+                    if (source[secondMiddle] >= source[middle]) {
+                        firstMiddle = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+            }
+            int destinationMiddle = destinationLeft + (firstMiddle - firstLeft) + (secondMiddle - secondLeft);
+            invokeAll(new DoubleMergeTask(source, destination, firstLeft, firstMiddle, secondLeft, secondMiddle,
+                            destinationLeft),
+                    new DoubleMergeTask(source, destination, firstMiddle, firstRight, secondMiddle, secondRight,
+                            destinationMiddle));
+        }
+    }
+
+    /**
+     * Finds runs in the specified range, reversing descending ones
+     * @param array array to look into
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, exclusive
+     * @return runs of the range or {@code null} if the range does not look presorted
+     */
+    static <T> Runs findRuns(T[] array, int left, int right, Comparator<? super T> comparator) {
+        int[] bounds = new int[MAX_RUN_COUNT + 2];
+        bounds[0] = left;
+        int count = 0;
+        int i = left;
+        while (i < right) {
+            if (count >= MAX_RUN_COUNT || count >= MIN_CHECKED_RUN_COUNT && i - left < count * MIN_AVERAGE_RUN_LENGTH) {
+                if (i - left < (right - left) / 2) {
+                    return null;
+                }
+                bounds[++count] = right;
+                return new Runs(bounds, count, i);
+            }
+            int start = i++;
+            if (i < right && comparator.compare(array[i], array[start]) < 0) {
+                while (i < right && comparator.compare(array[i], array[i - 1]) < 0) {
+                    i++;
+                }
+                reverse(array, start, i);
+            } else {
+                while (i < right && comparator.compare(array[i], array[i - 1]) >= 0) {
+                    i++;
+                }
+            }
+            if (count > 0 && comparator.compare(array[start], array[start - 1]) >= 0) {
+                bounds[count] = i;
+            } else {
+                bounds[++count] = i;
+            }
+        }
+        return new Runs(bounds, count, right);
+    }
+
+    /**
+     * Merges the sorted runs of a range, the unsorted tail must be sorted before
+     * @param array array containing the runs
+     * @param runs runs to merge
+     * @param pool pool which performs merging
+     */
+    static <T> void merge(T[] array, Runs runs, Comparator<? super T> comparator, ForkJoinPool pool) {
+        if (runs.count > 1) {
+            int left = runs.bounds[0];
+            T[] buffer = Arrays.copyOfRange(array, left, runs.bounds[runs.count]);
+            mergeRuns(runs, pool, (fromBuffer, from, middle, to) -> fromBuffer
+                    ? new ParallelMergeSort.MergeTask<>(buffer, array, from - left, middle - left, middle - left,
+                            to - left, from, comparator)
+                    : new ParallelMergeSort.MergeTask<>(array, buffer, from, middle, middle, to,
+                            from - left, comparator));
+        }
+    }
+
+    private static <T> void reverse(T[] array, int left, int right) {
+        for (int i = left, j = right - 1; i < j; i++, j--) {
+            T tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    /**
+     * Merges the runs pairwise in passes until one run is left. Every pass reads the runs from the array or
+     * from the buffer and writes the merged runs to the other one, the first one is chosen so that
+     * the last pass writes to the array. Both must contain the runs before the first pass
+     **/
+    private static void mergeRuns(Runs runs, ForkJoinPool pool, MergeTaskFactory factory) {
+        int[] bounds = Arrays.copyOf(runs.bounds, runs.count + 1);
+        int count = runs.count;
+        int passes = Integer.SIZE - Integer.numberOfLeadingZeros(count - 1);
+        for (int pass = 0; count > 1; pass++) {
+            boolean fromBuffer = (passes - pass) % 2 == 1;
+            var tasks = new ArrayList<ForkJoinTask<?>>();
+            int mergedCount = 0;
+            for (int i = 0; i < count; i += 2) {
+                int middle = bounds[Math.min(i + 1, count)];
+                int right = bounds[Math.min(i + 2, count)];
+                tasks.add(factory.create(fromBuffer, bounds[i], middle, right));
+                bounds[++mergedCount] = right;
+            }
+            count = mergedCount;
+            pool.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask.invokeAll(tasks);
+            }));
+        }
+    }
+
+    /** Creates a task merging two adjacent ranges given by positions in the array, the second one may be empty **/
+    private interface MergeTaskFactory {
+        ForkJoinTask<?> create(boolean fromBuffer, int left, int middle, int right);
+    }
+
+    /** Bounds of the runs found in a range, the last run is not sorted if it starts at {@code unsortedFrom} **/
+    static class Runs {
+        private final int[] bounds;
+        private final int count;
+        private final int unsortedFrom;
+
+        private Runs(int[] bounds, int count, int unsortedFrom) {
+            this.bounds = bounds;
+            this.count = count;
+            this.unsortedFrom = unsortedFrom;
+        }
+
+        /**
+         * Returns the index of the first element of the unsorted tail, it is the end of the range if there is no tail
+         * @return the index of the first element of the unsorted tail
+         */
+        int getUnsortedFrom() {
+            return unsortedFrom;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.hse.kuzyaka.qsort;
+
+/** Algorithm used for sorting arrays of integers and longs **/
+public enum SortAlgorithm {
+    /** Radix sort for large arrays, quick sort for the others **/
+    AUTO,
+    /** Quick sort, does not need additional memory **/
+    QUICK_SORT,
+    /** Radix sort, needs additional memory of the size of the sorted range **/
+    RADIX_SORT
+}
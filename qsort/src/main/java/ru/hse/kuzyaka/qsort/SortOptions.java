@@ -0,0 +1,175 @@
+package ru.hse.kuzyaka.qsort;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable configuration of a single sort. Every {@code with} method returns a new object,
+ * so one instance can be shared between concurrent sorts.
+ */
+public class SortOptions {
+    private static final int AUTO_SORT_THRESHOLD = -1;
+    private static final int MIN_AUTO_SORT_THRESHOLD = 1 << 13;
+    private static final int LEAVES_PER_THREAD = 8;
+    private static final SortOptions DEFAULTS =
+            new SortOptions(AUTO_SORT_THRESHOLD, null, false, 0, false, SortAlgorithm.AUTO);
+
+    private final int sortThreshold;
+    private final ForkJoinPool pool;
+    private final boolean isRandomized;
+    private final long seed;
+    private final boolean isStable;
+    private final SortAlgorithm algorithm;
+
+    private SortOptions(int sortThreshold, ForkJoinPool pool, boolean isRandomized, long seed, boolean isStable,
+                        SortAlgorithm algorithm) {
+        this.sortThreshold = sortThreshold;
+        this.pool = pool;
+        this.isRandomized = isRandomized;
+        this.seed = seed;
+        this.isStable = isStable;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Returns the default options: threshold is chosen automatically, sorting runs in the common pool,
+     * pivots are chosen from evenly spaced elements of a range and the algorithm is chosen automatically
+     *
+     * @return the default options
+     */
+    public static SortOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns options with the given threshold which determines how small the range must be to sort it sequentially
+     *
+     * @param sortThreshold new threshold
+     * @return options with the given threshold
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public SortOptions withSortThreshold(int sortThreshold) {
+        if (sortThreshold < 0) {
+            throw new IllegalArgumentException("Threshold must be non-negative");
+        }
+        return new SortOptions(sortThreshold, pool, isRandomized, seed, isStable, algorithm);
+    }
+
+    /**
+     * Returns options in which the threshold is chosen for every sort from the size of the range and
+     * the parallelism of the pool: ranges stop being split once there are about eight of them per thread,
+     * but they are never smaller than 8192 elements. So sorting does not create more tasks than threads
+     * can take, and small ranges (or any range in a single-threaded pool) are sorted without forking at all
+     *
+     * @return options with automatically chosen threshold
+     */
+    public SortOptions withAutoSortThreshold() {
+        return new SortOptions(AUTO_SORT_THRESHOLD, pool, isRandomized, seed, isStable, algorithm);
+    }
+
+    /**
+     * Returns options with the given pool which performs sorting
+     *
+     * @param pool pool which performs sorting
+     * @return options with the given pool
+     */
+    public SortOptions withPool(ForkJoinPool pool) {
+        return new SortOptions(sortThreshold, pool, isRandomized, seed, isStable, algorithm);
+    }
+
+    /**
+     * Returns options in which pivots are chosen randomly. Every task gets its own generator split from
+     * the generator of its parent, so the result does not depend on scheduling
+     *
+     * @param seed seed of the random number generator of the root task
+     * @return options with random pivots
+     */
+    public SortOptions withRandomSeed(long seed) {
+        return new SortOptions(sortThreshold, pool, true, seed, isStable, algorithm);
+    }
+
+    /**
+     * Returns options which require sorting of objects to be stable, i.e. equal elements keep their order.
+     * Stable sorting is done by parallel merge sort, it needs additional memory for a copy of the range.
+     * Sorting of primitives does not depend on this option
+     *
+     * @param isStable whether the sort must be stable
+     * @return options with the given stability requirement
+     */
+    public SortOptions withStable(boolean isStable) {
+        return new SortOptions(sortThreshold, pool, isRandomized, seed, isStable, algorithm);
+    }
+
+    /**
+     * Returns options with the given algorithm for sorting arrays of integers and longs.
+     * Other arrays are always sorted by quick sort (or by merge sort if stability is required)
+     *
+     * @param algorithm algorithm to use
+     * @return options with the given algorithm
+     */
+    public SortOptions withAlgorithm(SortAlgorithm algorithm) {
+        return new SortOptions(sortThreshold, pool, isRandomized, seed, isStable, algorithm);
+    }
+
+    /**
+     * Returns the threshold which determines how small the range must be to sort it sequentially
+     *
+     * @return the threshold or -1 if it is chosen automatically
+     */
+    public int getSortThreshold() {
+        return sortThreshold;
+    }
+
+    /**
+     * Tells if the threshold is chosen automatically
+     *
+     * @return {@code true} if the threshold is chosen automatically; {@code false} otherwise
+     */
+    public boolean isSortThresholdAuto() {
+        return sortThreshold == AUTO_SORT_THRESHOLD;
+    }
+
+    /**
+     * Returns the pool which performs sorting, it is the common pool if no pool was set
+     *
+     * @return the pool
+     */
+    public ForkJoinPool getPool() {
+        return pool == null ? ForkJoinPool.commonPool() : pool;
+    }
+
+    /**
+     * Tells if sorting of objects must be stable
+     *
+     * @return {@code true} if sorting of objects must be stable; {@code false} otherwise
+     */
+    public boolean isStable() {
+        return isStable;
+    }
+
+    /**
+     * Returns the algorithm for sorting arrays of integers and longs
+     *
+     * @return the algorithm
+     */
+    public SortAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /** Returns the threshold for sorting a range of the given size in the pool of these options **/
+    int sortThreshold(int size) {
+        if (!isSortThresholdAuto()) {
+            return sortThreshold;
+        }
+        int parallelism = getPool().getParallelism();
+        if (parallelism == 1) {
+            return size;
+        }
+        return Math.max(MIN_AUTO_SORT_THRESHOLD, size / (parallelism * LEAVES_PER_THREAD));
+    }
+
+    /** Returns a new generator for the root task or {@code null} if pivots are not random **/
+    SplittableRandom newRandom() {
+        return isRandomized ? new SplittableRandom(seed) : null;
+    }
+}
@@ -0,0 +1,101 @@
+package ru.hse.kuzyaka.qsort;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSortTest {
+    private static final long MEMORY_LIMIT = 1 << 20;
+
+    private Random random = new Random(1);
+    private Path directory;
+    private Path input;
+    private Path output;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("external-sort");
+        input = directory.resolve("input.bin");
+        output = directory.resolve("output.bin");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void testSingleChunk() throws IOException {
+        checkSort(random.ints(10_000).toArray());
+    }
+
+    @Test
+    void testSeveralChunks() throws IOException {
+        checkSort(random.ints(200_000).toArray());
+    }
+
+    @Test
+    void testSeveralMergePasses() throws IOException {
+        checkSort(random.ints(1_000_000, -100, 100).toArray());
+    }
+
+    @Test
+    void testEmpty() throws IOException {
+        checkSort(new int[0]);
+    }
+
+    @Test
+    void testRunsAreDeleted() throws IOException {
+        write(random.ints(500_000).toArray(), input);
+        new ExternalSort(MEMORY_LIMIT, directory, SortOptions.defaults()).sort(input, output);
+        try (var files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void testBadFileSize() throws IOException {
+        Files.write(input, new byte[]{1, 2, 3});
+        var sort = new ExternalSort(MEMORY_LIMIT, directory, SortOptions.defaults());
+        assertThrows(IllegalArgumentException.class, () -> sort.sort(input, output));
+    }
+
+    @Test
+    void testSmallMemoryLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new ExternalSort(1000));
+    }
+
+    private void checkSort(int[] array) throws IOException {
+        write(array, input);
+        new ExternalSort(MEMORY_LIMIT, directory, SortOptions.defaults()).sort(input, output);
+        Arrays.sort(array);
+        assertArrayEquals(array, read(output));
+    }
+
+    private static void write(int[] array, Path path) throws IOException {
+        var buffer = ByteBuffer.allocate(array.length * Integer.BYTES);
+        buffer.asIntBuffer().put(array);
+        Files.write(path, buffer.array());
+    }
+
+    private static int[] read(Path path) throws IOException {
+        var buffer = ByteBuffer.wrap(Files.readAllBytes(path)).asIntBuffer();
+        var array = new int[buffer.remaining()];
+        buffer.get(array);
+        return array;
+    }
+}
@@ -1,26 +1,27 @@
 package ru.hse.kuzyaka.qsort;
 
 import org.junit.jupiter.api.AfterEach;
-import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class QuickSortTest {
-    private List<Integer> list;
+    private List<Integer> list = new ArrayList<>();
     private Random random = new Random(1);
-
-    @BeforeAll
-    static void setUp() {
-        QuickSort.setRandom(new Random(0));
-        QuickSort.setSortThreshold(50);
-    }
+    private SortOptions options = SortOptions.defaults().withSortThreshold(50).withRandomSeed(0);
 
     @AfterEach
     void shutDown() {
@@ -30,31 +31,412 @@ class QuickSortTest {
     @Test
     void testSmall1() {
         list = newList(10);
-        QuickSort.sort(list);
+        QuickSort.sort(list, options);
         assertTrue(isSorted(list));
     }
 
     @Test
     void testSmall2() {
         list = newList(1000);
-        QuickSort.sort(list);
+        QuickSort.sort(list, options);
         assertTrue(isSorted(list));
     }
 
     @Test
     void testBig1() {
         list = newList(100_000);
-        QuickSort.sort(list);
+        QuickSort.sort(list, options);
         assertTrue(isSorted(list));
     }
 
     @Test
     void testBig2(){
         list = newList(1_000_000);
+        QuickSort.sort(list, options);
+        assertTrue(isSorted(list));
+    }
+
+    @Test
+    void testLinkedList() {
+        list = new LinkedList<>(newList(10_000));
         QuickSort.sort(list);
         assertTrue(isSorted(list));
     }
 
+    @Test
+    void testGivenPool() {
+        var pool = new ForkJoinPool(3);
+        for (int i = 0; i < 100; i++) {
+            list = newList(10_000);
+            QuickSort.sort(list, pool);
+            assertTrue(isSorted(list));
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testIntArray() {
+        int[] array = random.ints(1_000_000).toArray();
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+        QuickSort.sort(array);
+        assertArrayEquals(expected, array);
+    }
+
+    @Test
+    void testLongArray() {
+        long[] array = random.longs(1_000_000).toArray();
+        long[] expected = array.clone();
+        Arrays.sort(expected);
+        QuickSort.sort(array);
+        assertArrayEquals(expected, array);
+    }
+
+    @Test
+    void testDoubleArray() {
+        double[] array = random.doubles(1_000_000, -1, 1).toArray();
+        for (int i = 0; i < array.length; i += 1000) {
+            array[i] = Double.NaN;
+            array[i + 1] = -0.0;
+            array[i + 2] = 0.0;
+        }
+        double[] expected = array.clone();
+        Arrays.sort(expected);
+        QuickSort.sort(array);
+        assertArrayEquals(expected, array);
+    }
+
+    @Test
+    void testParallelPartition() {
+        var pool = new ForkJoinPool(4);
+        var quickSortOptions = SortOptions.defaults().withPool(pool).withAlgorithm(SortAlgorithm.QUICK_SORT);
+        int[] array = random.ints(3_000_000).toArray();
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+        QuickSort.sort(array, quickSortOptions);
+        assertArrayEquals(expected, array);
+
+        long[] longArray = random.longs(3_000_000, 0, 10).toArray();
+        long[] longExpected = longArray.clone();
+        Arrays.sort(longExpected);
+        QuickSort.sort(longArray, quickSortOptions);
+        assertArrayEquals(longExpected, longArray);
+
+        double[] doubleArray = random.doubles(3_000_000).toArray();
+        double[] doubleExpected = doubleArray.clone();
+        Arrays.sort(doubleExpected);
+        QuickSort.sort(doubleArray, pool);
+        assertArrayEquals(doubleExpected, doubleArray);
+        pool.shutdown();
+    }
+
+    @Test
+    void testManyDuplicates() {
+        var pool = new ForkJoinPool(4);
+        var quickSortOptions = SortOptions.defaults().withPool(pool).withAlgorithm(SortAlgorithm.QUICK_SORT);
+        for (int bound : new int[]{1, 2, 3, 100}) {
+            int[] array = random.ints(2_000_000, 0, bound).toArray();
+            int[] expected = array.clone();
+            Arrays.sort(expected);
+            QuickSort.sort(array, quickSortOptions);
+            assertArrayEquals(expected, array);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testSortedAndReversed() {
+        int[] array = IntStream.range(0, 2_000_000).toArray();
+        int[] expected = array.clone();
+        QuickSort.sort(array);
+        assertArrayEquals(expected, array);
+        array = IntStream.range(0, 2_000_000).map(i -> -i).toArray();
+        expected = array.clone();
+        Arrays.sort(expected);
+        QuickSort.sort(array);
+        assertArrayEquals(expected, array);
+    }
+
+    @Test
+    void testConcurrentSorts() throws Exception {
+        var executor = Executors.newFixedThreadPool(8);
+        var pool = new ForkJoinPool(4);
+        var results = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < 64; i++) {
+            int[] array = random.ints(50_000 + i * 1000, 0, 1 + i * 100).toArray();
+            int[] expected = array.clone();
+            Arrays.sort(expected);
+            var sortOptions = SortOptions.defaults().withSortThreshold(i).withPool(i % 2 == 0 ? pool : null);
+            var taskOptions = i % 3 == 0 ? sortOptions.withRandomSeed(i) : sortOptions;
+            results.add(executor.submit(() -> {
+                QuickSort.sort(array, taskOptions);
+                return Arrays.equals(expected, array);
+            }));
+        }
+        for (var result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+        pool.shutdown();
+    }
+
+    @Test
+    void testNegativeThreshold() {
+        assertThrows(IllegalArgumentException.class, () -> SortOptions.defaults().withSortThreshold(-1));
+    }
+
+    @Test
+    void testAutoThreshold() {
+        var singleThreadPool = new ForkJoinPool(1);
+        var pool = new ForkJoinPool(4);
+        var autoOptions = SortOptions.defaults().withSortThreshold(10).withAutoSortThreshold();
+        assertTrue(autoOptions.isSortThresholdAuto());
+        assertFalse(autoOptions.withSortThreshold(10).isSortThresholdAuto());
+        assertEquals(1_000_000, autoOptions.withPool(singleThreadPool).sortThreshold(1_000_000));
+        assertEquals(1 << 13, autoOptions.withPool(pool).sortThreshold(1000));
+        assertTrue(autoOptions.withPool(pool).sortThreshold(10_000_000) < 10_000_000 / 4);
+        int[] array = random.ints(3_000_000).toArray();
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+        QuickSort.sort(array, autoOptions.withPool(pool).withAlgorithm(SortAlgorithm.QUICK_SORT));
+        assertArrayEquals(expected, array);
+        singleThreadPool.shutdown();
+        pool.shutdown();
+    }
+
+    @Test
+    void testRadixSort() {
+        var pool = new ForkJoinPool(4);
+        var radixSortOptions = SortOptions.defaults().withPool(pool).withAlgorithm(SortAlgorithm.RADIX_SORT);
+        for (int size : new int[]{0, 1, 10, 1000, 100_000, 2_000_000}) {
+            int[] array = random.ints(size).toArray();
+            if (size > 2) {
+                array[0] = Integer.MIN_VALUE;
+                array[1] = Integer.MAX_VALUE;
+            }
+            int[] expected = array.clone();
+            Arrays.sort(expected);
+            QuickSort.sort(array, radixSortOptions);
+            assertArrayEquals(expected, array);
+
+            long[] longArray = random.longs(size).toArray();
+            long[] longExpected = longArray.clone();
+            Arrays.sort(longExpected);
+            QuickSort.sort(longArray, radixSortOptions);
+            assertArrayEquals(longExpected, longArray);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testRadixSortSkipsEqualDigits() {
+        int[] array = random.ints(300_000, -1000, 1000).toArray();
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+        QuickSort.sort(array, SortOptions.defaults().withAlgorithm(SortAlgorithm.RADIX_SORT));
+        assertArrayEquals(expected, array);
+
+        long[] longArray = random.longs(300_000, 0, 1L << 40).toArray();
+        long[] longExpected = longArray.clone();
+        Arrays.sort(longExpected, 1000, 200_000);
+        QuickSort.sort(longArray, 1000, 200_000, SortOptions.defaults().withAlgorithm(SortAlgorithm.RADIX_SORT));
+        assertArrayEquals(longExpected, longArray);
+    }
+
+    @Test
+    void testPresortedInputs() {
+        var pool = new ForkJoinPool(4);
+        int size = 1_000_000;
+        var inputs = new ArrayList<int[]>();
+        inputs.add(IntStream.range(0, size).toArray());
+        inputs.add(IntStream.range(0, size).map(i -> size - i).toArray());
+        inputs.add(IntStream.range(0, size).map(i -> i < size / 2 ? i : size - i).toArray());
+        inputs.add(IntStream.range(0, size).map(i -> i < size - 10_000 ? i : random.nextInt()).toArray());
+        int[] nearlySorted = IntStream.range(0, size).toArray();
+        for (int i = 0; i < 50; i++) {
+            int j = random.nextInt(size);
+            int k = random.nextInt(size);
+            int tmp = nearlySorted[j];
+            nearlySorted[j] = nearlySorted[k];
+            nearlySorted[k] = tmp;
+        }
+        inputs.add(nearlySorted);
+        for (int[] array : inputs) {
+            int[] expected = array.clone();
+            Arrays.sort(expected);
+            long[] longArray = Arrays.stream(array).asLongStream().toArray();
+            double[] doubleArray = Arrays.stream(array).asDoubleStream().toArray();
+            Integer[] boxedArray = Arrays.stream(array).boxed().toArray(Integer[]::new);
+            QuickSort.sort(array, pool);
+            QuickSort.sort(longArray, pool);
+            QuickSort.sort(doubleArray, pool);
+            QuickSort.sort(boxedArray, Comparator.naturalOrder(), SortOptions.defaults().withPool(pool));
+            assertArrayEquals(expected, array);
+            assertArrayEquals(Arrays.stream(expected).asLongStream().toArray(), longArray);
+            assertArrayEquals(Arrays.stream(expected).asDoubleStream().toArray(), doubleArray);
+            assertArrayEquals(Arrays.stream(expected).boxed().toArray(), boxedArray);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testStableDescendingRuns() {
+        int size = 100_000;
+        int[][] array = new int[size][];
+        for (int i = 0; i < size; i++) {
+            array[i] = new int[]{(size - i) / 10, i};
+        }
+        QuickSort.sort(array, Comparator.comparingInt(element -> element[0]), SortOptions.defaults().withStable(true));
+        for (int i = 0; i + 1 < size; i++) {
+            assertTrue(array[i][0] < array[i + 1][0]
+                    || array[i][0] == array[i + 1][0] && array[i][1] < array[i + 1][1]);
+        }
+    }
+
+    @Test
+    void testComparator() {
+        var pool = new ForkJoinPool(4);
+        for (int size : new int[]{0, 1, 10, 1000, 2_000_000}) {
+            Integer[] array = random.ints(size, 0, 1000).boxed().toArray(Integer[]::new);
+            Integer[] expected = array.clone();
+            Arrays.sort(expected, Comparator.reverseOrder());
+            QuickSort.sort(array, Comparator.reverseOrder(), SortOptions.defaults().withPool(pool));
+            assertArrayEquals(expected, array);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testNaturalOrder() {
+        String[] array = random.ints(10_000).mapToObj(Integer::toString).toArray(String[]::new);
+        String[] expected = array.clone();
+        Arrays.sort(expected);
+        QuickSort.sort(array, null);
+        assertArrayEquals(expected, array);
+    }
+
+    @Test
+    void testStable() {
+        var pool = new ForkJoinPool(4);
+        for (int size : new int[]{0, 1, 10, 1000, 1_000_000}) {
+            int[][] array = new int[size][];
+            for (int i = 0; i < size; i++) {
+                array[i] = new int[]{random.nextInt(100), i};
+            }
+            var options = SortOptions.defaults().withStable(true).withPool(pool);
+            QuickSort.sort(array, Comparator.comparingInt(element -> element[0]), options);
+            for (int i = 0; i + 1 < size; i++) {
+                assertTrue(array[i][0] < array[i + 1][0]
+                        || array[i][0] == array[i + 1][0] && array[i][1] < array[i + 1][1]);
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testStableRange() {
+        int size = 100_000;
+        Integer[] array = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = random.nextInt(1000);
+        }
+        var expected = array.clone();
+        Arrays.sort(expected, size - 50_000, size - 10, Comparator.comparingInt(element -> element / 10));
+        var options = SortOptions.defaults().withStable(true).withSortThreshold(1000);
+        QuickSort.sort(array, size - 50_000, size - 10, Comparator.comparingInt(element -> element / 10), options);
+        assertArrayEquals(expected, array);
+    }
+
+    @Test
+    void testGenericList() {
+        var strings = new LinkedList<String>();
+        random.ints(10_000).forEach(i -> strings.add(Integer.toString(i)));
+        var expected = new ArrayList<>(strings);
+        expected.sort(Comparator.comparing(String::length).thenComparing(Comparator.naturalOrder()));
+        QuickSort.sort(strings, Comparator.comparing(String::length).thenComparing(Comparator.naturalOrder()));
+        assertEquals(expected, strings);
+    }
+
+    @Test
+    void testRange() {
+        int[] array = random.ints(100_000).toArray();
+        int[] expected = array.clone();
+        Arrays.sort(expected, 1000, 90_000);
+        QuickSort.sort(array, 1000, 90_000);
+        assertArrayEquals(expected, array);
+    }
+
+    @Test
+    void testBadRange() {
+        assertThrows(IndexOutOfBoundsException.class, () -> QuickSort.sort(new int[10], 5, 11));
+        assertThrows(IndexOutOfBoundsException.class, () -> QuickSort.sort(new long[10], 5, 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> QuickSort.sort(new double[10], -1, 4));
+    }
+
+    @Test
+    void testSelect() {
+        var pool = new ForkJoinPool(4);
+        for (int size : new int[]{1, 10, 1000, 100_000, 2_000_000}) {
+            int[] array = random.ints(size, 0, size / 2 + 1).toArray();
+            int[] sorted = array.clone();
+            Arrays.sort(sorted);
+            for (int k : new int[]{0, size / 3, size - 1}) {
+                assertEquals(sorted[k], QuickSort.select(array, k, SortOptions.defaults().withPool(pool)));
+                for (int i = 0; i < size; i++) {
+                    assertTrue(i < k ? array[i] <= array[k] : array[i] >= array[k]);
+                }
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testSelectDoubles() {
+        double[] array = random.doubles(10_000).toArray();
+        array[0] = Double.NaN;
+        array[1] = Double.NaN;
+        double[] sorted = array.clone();
+        Arrays.sort(sorted);
+        assertEquals(sorted[5000], QuickSort.select(array.clone(), 5000));
+        assertTrue(Double.isNaN(QuickSort.select(array.clone(), 9999)));
+        assertEquals(sorted[9997], QuickSort.select(array, 9997));
+    }
+
+    @Test
+    void testTopK() {
+        long[] array = random.longs(100_000).toArray();
+        long[] sorted = array.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(Arrays.copyOf(sorted, 100), QuickSort.topK(array, 100));
+        assertArrayEquals(new long[0], QuickSort.topK(array, 0));
+        assertArrayEquals(sorted, QuickSort.topK(array, array.length));
+        assertThrows(IndexOutOfBoundsException.class, () -> QuickSort.topK(array, array.length + 1));
+    }
+
+    @Test
+    void testTopKWithComparator() {
+        var pool = new ForkJoinPool(4);
+        Integer[] array = random.ints(100_000).boxed().toArray(Integer[]::new);
+        Integer[] sorted = array.clone();
+        Arrays.sort(sorted, Comparator.reverseOrder());
+        var topOptions = SortOptions.defaults().withPool(pool).withRandomSeed(1);
+        assertArrayEquals(Arrays.copyOf(sorted, 10), QuickSort.topK(array, 10, Comparator.reverseOrder(), topOptions));
+        assertEquals(sorted[500], QuickSort.select(array, 500, Comparator.reverseOrder()));
+        pool.shutdown();
+    }
+
+    @Test
+    void testPercentile() {
+        int[] array = IntStream.rangeClosed(1, 100).toArray();
+        assertEquals(50, QuickSort.percentile(array, 50));
+        assertEquals(99, QuickSort.percentile(array, 99));
+        assertEquals(1, QuickSort.percentile(array, 0));
+        assertEquals(100, QuickSort.percentile(array, 100));
+        assertEquals("b", QuickSort.percentile(new String[]{"c", "a", "b"}, 50, null));
+        assertThrows(IllegalArgumentException.class, () -> QuickSort.percentile(array, 101));
+        assertThrows(NoSuchElementException.class, () -> QuickSort.percentile(new int[0], 50));
+    }
+
     private List<Integer> newList(int n) {
         var list = new ArrayList<Integer>();
         IntStream.range(0, n).forEach(i -> list.add(random.nextInt()));
@@ -0,0 +1,95 @@
+package ru.hse.kuzyaka.threadpool;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast a batch of trivial tasks is processed when it is submitted by several producers at once,
+ * so the producers and the workers contend on the task queue
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ContentionBenchmark {
+    private static final int BATCH_SIZE = 1600;
+
+    @Param({"1", "4", "16"})
+    private int threads;
+
+    /** Number of threads submitting the batch, each of them submits an equal part of it and waits for its results **/
+    @Param({"1", "4", "16"})
+    private int producers;
+
+    private ThreadPool pool;
+    private ExecutorService executor;
+    private ExecutorService producerThreads;
+
+    @Setup
+    public void setUp() {
+        pool = new ThreadPool(threads);
+        executor = Executors.newFixedThreadPool(threads);
+        producerThreads = Executors.newFixedThreadPool(producers);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        pool.shutdown();
+        executor.shutdownNow();
+        producerThreads.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long threadPool() throws InterruptedException, ExecutionException {
+        return produce(() -> {
+            var futures = new ArrayList<LightFuture<Integer>>(BATCH_SIZE / producers);
+            for (int i = 0; i < BATCH_SIZE / producers; i++) {
+                futures.add(pool.submit(() -> 42));
+            }
+            long sum = 0;
+            for (var future : futures) {
+                sum += future.get();
+            }
+            return sum;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long executorService() throws InterruptedException, ExecutionException {
+        return produce(() -> {
+            var futures = new ArrayList<Future<Integer>>(BATCH_SIZE / producers);
+            for (int i = 0; i < BATCH_SIZE / producers; i++) {
+                futures.add(executor.submit(() -> 42));
+            }
+            long sum = 0;
+            for (var future : futures) {
+                sum += future.get();
+            }
+            return sum;
+        });
+    }
+
+    /** Runs the producer on all producer threads at once and waits for them **/
+    private long produce(Callable<Long> producer) throws InterruptedException, ExecutionException {
+        var running = new ArrayList<Future<Long>>(producers);
+        for (int i = 0; i < producers; i++) {
+            running.add(producerThreads.submit(producer));
+        }
+        long sum = 0;
+        for (var future : running) {
+            sum += future.get();
+        }
+        return sum;
+    }
+}
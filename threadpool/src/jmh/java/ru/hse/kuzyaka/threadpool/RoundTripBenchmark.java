@@ -0,0 +1,45 @@
+package ru.hse.kuzyaka.threadpool;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/** Measures latency of submitting a trivial task and waiting for its result **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RoundTripBenchmark {
+    @Param({"1", "4", "16"})
+    private int threads;
+
+    private ThreadPool pool;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        pool = new ThreadPool(threads);
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        pool.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Integer threadPool() throws InterruptedException {
+        return pool.submit(() -> 42).get();
+    }
+
+    @Benchmark
+    public Integer executorService() throws InterruptedException, ExecutionException {
+        return executor.submit(() -> 42).get();
+    }
+}
@@ -0,0 +1,57 @@
+package ru.hse.kuzyaka.threadpool;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the time to build and complete a chain of {@code thenApply} calls of the given depth **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ThenApplyChainBenchmark {
+    @Param({"1", "4", "16"})
+    private int threads;
+
+    @Param({"1", "10", "100"})
+    private int depth;
+
+    private ThreadPool pool;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        pool = new ThreadPool(threads);
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        pool.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Integer threadPool() throws InterruptedException {
+        LightFuture<Integer> future = pool.submit(() -> 0);
+        for (int i = 0; i < depth; i++) {
+            future = future.thenApply(x -> x + 1);
+        }
+        return future.get();
+    }
+
+    @Benchmark
+    public Integer completableFuture() throws InterruptedException, ExecutionException {
+        CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> 0, executor);
+        for (int i = 0; i < depth; i++) {
+            future = future.thenApplyAsync(x -> x + 1, executor);
+        }
+        return future.get();
+    }
+}
@@ -0,0 +1,73 @@
+package ru.hse.kuzyaka.threadpool;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/** Measures how fast a batch of independent tasks of the given cost is processed **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ThroughputBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1", "4", "16"})
+    private int threads;
+
+    /** Cost of a single task in {@code Blackhole.consumeCPU} tokens: short and long tasks **/
+    @Param({"10", "10000"})
+    private long taskTokens;
+
+    private ThreadPool pool;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        pool = new ThreadPool(threads);
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        pool.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void threadPool(Blackhole blackhole) throws InterruptedException {
+        var futures = new ArrayList<LightFuture<Long>>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            futures.add(pool.submit(this::task));
+        }
+        for (var future : futures) {
+            blackhole.consume(future.get());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void executorService(Blackhole blackhole) throws InterruptedException, ExecutionException {
+        var futures = new ArrayList<Future<Long>>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            futures.add(executor.submit(this::task));
+        }
+        for (var future : futures) {
+            blackhole.consume(future.get());
+        }
+    }
+
+    private Long task() {
+        Blackhole.consumeCPU(taskTokens);
+        return taskTokens;
+    }
+}
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -11,7 +13,7 @@ import java.util.function.Supplier;
 public class ThreadPool {
     private final SynchronizedQueue<ThreadPoolTask<?>> taskQueue;
     private Thread[] threads;
-    private boolean isShutDown = false;
+    private volatile boolean isShutDown = false;
 
     /**
      * Constructs a fixed thread pool with the specified number of threads
@@ -38,27 +40,111 @@ public class ThreadPool {
             throw new IllegalStateException("ThreadPool is already shut down");
         }
         var lightFuture = new ThreadPoolTask<T>(supplier);
-        taskQueue.push(lightFuture);
+        if (!taskQueue.push(lightFuture, false)) {
+            throw new IllegalStateException("ThreadPool is already shut down");
+        }
         return lightFuture;
     }
 
     /**
-     * Shuts the thread pool down (tries to interrupt all threads and joins them)
+     * Shuts the thread pool down (tries to interrupt all threads and joins them).
+     * Tasks which were not started are completed exceptionally, so their {@code get} throws {@code LightExecutionException}
      */
     public void shutdown() throws InterruptedException {
+        for (ThreadPoolTask<?> task : stop()) {
+            task.cancel();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Shuts the thread pool down gracefully. New tasks are not accepted, but already submitted ones
+     * (and the ones applied to them with {@code thenApply}) are still executed until the deadline.
+     * After the deadline the pool is shut down as with {@link #shutdown()}
+     *
+     * @param timeout the maximum time to wait for the queued tasks to finish
+     * @param unit    the time unit of the timeout argument
+     * @return {@code true} if all the tasks were completed before the deadline; {@code false} otherwise
+     * @throws InterruptedException if current thread was interrupted while waiting
+     */
+    public boolean shutdownGracefully(long timeout, TimeUnit unit) throws InterruptedException {
         isShutDown = true;
+        taskQueue.close();
+        if (awaitTermination(timeout, unit)) {
+            return true;
+        }
+        shutdown();
+        return false;
+    }
+
+    /**
+     * Interrupts all threads and returns the tasks which were not started. These tasks are not run by this pool,
+     * their futures become ready only if the returned tasks are run by the caller. Does not wait for threads to finish
+     *
+     * @return list of the tasks which were not started
+     */
+    public List<Runnable> shutdownNow() {
+        return new ArrayList<>(stop());
+    }
+
+    /**
+     * Blocks until all threads of this pool finish after a shutdown request or the timeout occurs
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of the timeout argument
+     * @return {@code true} if all threads have finished; {@code false} if the timeout elapsed before that
+     * @throws InterruptedException if current thread was interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
         for (Thread thread : threads) {
-            thread.interrupt();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+        }
+        return isTerminated();
+    }
+
+    /**
+     * Tells if the pool was shut down
+     *
+     * @return {@code true} if one of the shutdown methods was called; {@code false} otherwise
+     */
+    public boolean isShutdown() {
+        return isShutDown;
+    }
+
+    /**
+     * Tells if all threads of this pool have finished after a shutdown request
+     *
+     * @return {@code true} if all threads have finished; {@code false} otherwise
+     */
+    public boolean isTerminated() {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                return false;
+            }
         }
+        return true;
+    }
+
+    private List<ThreadPoolTask<?>> stop() {
+        isShutDown = true;
+        var notStarted = taskQueue.stop();
         for (Thread thread : threads) {
-            thread.join();
+            thread.interrupt();
         }
+        return notStarted;
     }
 
     private void taskWork() {
         try {
-            while (!Thread.interrupted()) {
-                ThreadPoolTask<?> task = taskQueue.pop();
+            ThreadPoolTask<?> task;
+            while ((task = taskQueue.pop()) != null) {
                 task.run();
             }
         } catch (InterruptedException ignored) {
@@ -111,12 +197,14 @@ public class ThreadPool {
             });
 
             synchronized (thenApplyTaskQueue) {
-                if (isReady) {
-                    taskQueue.push(task);
-                } else {
+                if (!isReady) {
                     thenApplyTaskQueue.add(task);
+                    return task;
                 }
             }
+            if (!taskQueue.push(task, false)) {
+                throw new IllegalStateException("Thread is already shut down");
+            }
             return task;
         }
 
@@ -127,29 +215,69 @@ public class ThreadPool {
             } catch (Exception e) {
                 exception = e;
             }
-            isReady = true;
-            supplier = null;
+            complete();
+            for (ThreadPoolTask<?> task : thenApplyTaskQueue) {
+                if (!taskQueue.push(task, true)) {
+                    task.cancel();
+                }
+            }
+        }
+
+        private void cancel() {
+            exception = new CancellationException("ThreadPool was shut down before the task was started");
+            complete();
+            thenApplyTaskQueue.forEach(ThreadPoolTask::cancel);
+        }
 
+        private void complete() {
             synchronized (thenApplyTaskQueue) {
+                isReady = true;
+                supplier = null;
                 thenApplyTaskQueue.notifyAll();
-                thenApplyTaskQueue.forEach(taskQueue::push);
             }
         }
     }
 
     private class SynchronizedQueue<T> {
         private Queue<T> queue = new LinkedList<>();
+        private boolean isClosed = false;
+        private boolean isStopped = false;
 
-        public synchronized void push(T t) {
+        /**
+         * Adds the element unless the queue is stopped. A closed queue accepts only elements pushed by its consumers,
+         * the other consumers may have already left it
+         **/
+        public synchronized boolean push(T t, boolean fromConsumer) {
+            if (isStopped || isClosed && !fromConsumer) {
+                return false;
+            }
             queue.offer(t);
             notifyAll();
+            return true;
         }
 
+        /** Returns the next element or {@code null} if the queue is closed and empty or stopped **/
         public synchronized T pop() throws InterruptedException {
-            while (queue.size() == 0) {
+            while (queue.size() == 0 && !isClosed) {
                 wait();
             }
-            return queue.poll();
+            return isStopped ? null : queue.poll();
+        }
+
+        /** Lets the consumers finish once the queue becomes empty **/
+        public synchronized void close() {
+            isClosed = true;
+            notifyAll();
+        }
+
+        /** Rejects all further pushes and returns the elements which were not popped **/
+        public synchronized List<T> stop() {
+            isClosed = true;
+            isStopped = true;
+            var rest = new ArrayList<>(queue);
+            queue.clear();
+            notifyAll();
+            return rest;
         }
     }
 }
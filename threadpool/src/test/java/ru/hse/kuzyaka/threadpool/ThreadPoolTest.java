@@ -3,6 +3,9 @@ package ru.hse.kuzyaka.threadpool;
 import org.junit.jupiter.api.RepeatedTest;
 
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
@@ -115,6 +118,130 @@ class ThreadPoolTest {
         assertEquals(SIZE, value.get());
     }
 
+    @RepeatedTest(TEST_REPETITION_COUNT)
+    void testGracefulShutdownCompletesQueuedTasks() throws InterruptedException {
+        var pool = new ThreadPool(2);
+        var tasks = new ArrayList<LightFuture<Integer>>();
+        for (int i = 0; i < 20; i++) {
+            final int j = i;
+            tasks.add(pool.submit(() -> {
+                try {
+                    sleep(5);
+                } catch (InterruptedException ignored) {
+                }
+                return j;
+            }).thenApply(x -> x * 2));
+        }
+        assertTrue(pool.shutdownGracefully(10, TimeUnit.SECONDS));
+        assertTrue(pool.isTerminated());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(2 * i, (int) tasks.get(i).get());
+        }
+    }
+
+    @RepeatedTest(TEST_REPETITION_COUNT)
+    void testGracefulShutdownFailsTasksAfterDeadline() throws InterruptedException {
+        var pool = new ThreadPool(1);
+        var started = new CountDownLatch(1);
+        var blocking = pool.submit(() -> {
+            started.countDown();
+            try {
+                sleep(Long.MAX_VALUE);
+            } catch (InterruptedException ignored) {
+            }
+            return 1;
+        });
+        var queued = pool.submit(() -> 2);
+        var applied = queued.thenApply(x -> x * 2);
+        started.await();
+        assertFalse(pool.shutdownGracefully(100, TimeUnit.MILLISECONDS));
+        assertTrue(pool.isTerminated());
+        assertEquals(1, (int) blocking.get());
+        assertThrows(LightExecutionException.class, queued::get);
+        assertThrows(LightExecutionException.class, applied::get);
+    }
+
+    @RepeatedTest(TEST_REPETITION_COUNT)
+    void testGracefulShutdownCompletesAcceptedTasks() throws InterruptedException {
+        var pool = new ThreadPool(4);
+        var ready = pool.submit(() -> 1);
+        ready.get();
+        var accepted = new ConcurrentLinkedQueue<LightFuture<Integer>>();
+        var producers = new ArrayList<Thread>();
+        var start = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            var producer = new Thread(() -> {
+                try {
+                    start.await();
+                    while (true) {
+                        accepted.add(pool.submit(() -> 1));
+                        accepted.add(ready.thenApply(x -> x + 1));
+                    }
+                } catch (IllegalStateException | InterruptedException ignored) {
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        start.countDown();
+        sleep(10);
+        assertTrue(pool.shutdownGracefully(10, TimeUnit.SECONDS));
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (var future : accepted) {
+            assertTrue(future.isReady());
+            assertDoesNotThrow(() -> future.get());
+        }
+    }
+
+    @RepeatedTest(TEST_REPETITION_COUNT)
+    void testShutdownFailsQueuedTasks() throws InterruptedException {
+        var pool = new ThreadPool(1);
+        var started = new CountDownLatch(1);
+        pool.submit(() -> {
+            started.countDown();
+            try {
+                sleep(Long.MAX_VALUE);
+            } catch (InterruptedException ignored) {
+            }
+            return null;
+        });
+        var queued = pool.submit(() -> 1);
+        started.await();
+        pool.shutdown();
+        assertTrue(queued.isReady());
+        assertThrows(LightExecutionException.class, queued::get);
+    }
+
+    @RepeatedTest(TEST_REPETITION_COUNT)
+    void testShutdownNowReturnsNotStartedTasks() throws InterruptedException {
+        var pool = new ThreadPool(1);
+        var started = new CountDownLatch(1);
+        pool.submit(() -> {
+            started.countDown();
+            try {
+                sleep(Long.MAX_VALUE);
+            } catch (InterruptedException ignored) {
+            }
+            return null;
+        });
+        var queued = new ArrayList<LightFuture<Integer>>();
+        for (int i = 0; i < 5; i++) {
+            final int j = i;
+            queued.add(pool.submit(() -> j));
+        }
+        started.await();
+        var notStarted = pool.shutdownNow();
+        assertTrue(pool.isShutdown());
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(5, notStarted.size());
+        notStarted.forEach(Runnable::run);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, (int) queued.get(i).get());
+        }
+    }
+
     private static class Task {
         private int counter;
 
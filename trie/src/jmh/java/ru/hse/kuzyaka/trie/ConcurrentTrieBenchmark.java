@@ -0,0 +1,102 @@
+package ru.hse.kuzyaka.trie;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares {@code ConcurrentTrie} with {@code Trie} guarded by a global lock on a workload of three readers
+ * per writer and on a workload of several writers. Writers add and remove strings with their own prefixes,
+ * readers look up random strings
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConcurrentTrieBenchmark {
+    private static final int WORDS = 100_000;
+
+    private String[] words;
+    private ConcurrentTrie concurrentTrie;
+    private Trie trie;
+
+    @Setup
+    public void setUp() {
+        var random = new SplittableRandom(0);
+        words = new String[WORDS];
+        concurrentTrie = new ConcurrentTrie();
+        trie = new Trie();
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = Long.toString(random.nextLong(Long.MAX_VALUE), 36);
+            concurrentTrie.add(words[i]);
+            trie.add(words[i]);
+        }
+    }
+
+    /** Random state of a benchmark thread, writers use its id as the prefix of their strings **/
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+        private final SplittableRandom random = new SplittableRandom();
+        private final String prefix = NEXT_ID.getAndIncrement() + "/";
+        private int counter;
+
+        private String nextWord() {
+            return prefix + (counter++ % 1024);
+        }
+    }
+
+    @Benchmark
+    @Group("concurrentTrie")
+    @GroupThreads(3)
+    public boolean concurrentTrieRead(ThreadState state) {
+        return concurrentTrie.contains(words[state.random.nextInt(WORDS)]);
+    }
+
+    @Benchmark
+    @Group("concurrentTrie")
+    @GroupThreads(1)
+    public boolean concurrentTrieWrite(ThreadState state) {
+        var word = state.nextWord();
+        return concurrentTrie.add(word) || concurrentTrie.remove(word);
+    }
+
+    @Benchmark
+    @Group("synchronizedTrie")
+    @GroupThreads(3)
+    public boolean synchronizedTrieRead(ThreadState state) {
+        var word = words[state.random.nextInt(WORDS)];
+        synchronized (trie) {
+            return trie.contains(word);
+        }
+    }
+
+    @Benchmark
+    @Group("synchronizedTrie")
+    @GroupThreads(1)
+    public boolean synchronizedTrieWrite(ThreadState state) {
+        var word = state.nextWord();
+        synchronized (trie) {
+            return trie.add(word) || trie.remove(word);
+        }
+    }
+
+    @Benchmark
+    @Group("concurrentTrieWriters")
+    @GroupThreads(4)
+    public boolean concurrentTrieWriters(ThreadState state) {
+        return concurrentTrieWrite(state);
+    }
+
+    @Benchmark
+    @Group("synchronizedTrieWriters")
+    @GroupThreads(4)
+    public boolean synchronizedTrieWriters(ThreadState state) {
+        return synchronizedTrieWrite(state);
+    }
+}
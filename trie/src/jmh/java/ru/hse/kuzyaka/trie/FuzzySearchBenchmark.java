@@ -0,0 +1,98 @@
+package ru.hse.kuzyaka.trie;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the fuzzy search with checking every string at distance one from the query by {@code contains}.
+ * Strings are random words of lowercase letters
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FuzzySearchBenchmark {
+    private static final int WORDS = 200_000;
+    private static final int QUERIES = 1024;
+
+    @Param({"1", "2"})
+    private int maxDistance;
+
+    private Trie trie;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        var random = new SplittableRandom(0);
+        trie = new Trie();
+        for (int i = 0; i < WORDS; i++) {
+            trie.add(randomWord(random));
+        }
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = randomWord(random);
+        }
+    }
+
+    @Benchmark
+    public List<String> fuzzySearch() {
+        return trie.fuzzySearch(nextQuery(), maxDistance);
+    }
+
+    @Benchmark
+    public List<String> checkEdits() {
+        var candidates = new TreeSet<String>();
+        candidates.add(nextQuery());
+        for (int step = 0; step < maxDistance; step++) {
+            var edits = new ArrayList<String>();
+            for (var candidate : candidates) {
+                addEdits(candidate, edits);
+            }
+            candidates.addAll(edits);
+        }
+        var result = new ArrayList<String>();
+        for (var candidate : candidates) {
+            if (trie.contains(candidate)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    private String nextQuery() {
+        return queries[next++ & (QUERIES - 1)];
+    }
+
+    private static void addEdits(String word, List<String> edits) {
+        for (int i = 0; i <= word.length(); i++) {
+            var head = word.substring(0, i);
+            if (i < word.length()) {
+                var tail = word.substring(i + 1);
+                edits.add(head + tail);
+                for (char c = 'a'; c <= 'z'; c++) {
+                    edits.add(head + c + tail);
+                }
+            }
+            for (char c = 'a'; c <= 'z'; c++) {
+                edits.add(head + c + word.substring(i));
+            }
+        }
+    }
+
+    private static String randomWord(SplittableRandom random) {
+        var builder = new StringBuilder();
+        int length = 4 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package ru.hse.kuzyaka.trie;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Collections;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a trie by separate {@code add} calls with the bulk builders from sorted strings
+ * and the parallel builders using the common pool
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TrieBuildBenchmark {
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private String[] words;
+    private List<List<String>> shards;
+
+    @Setup
+    public void setUp() {
+        var random = new SplittableRandom(0);
+        words = new String[size];
+        for (int i = 0; i < size; i++) {
+            words[i] = Long.toString(random.nextLong(Long.MAX_VALUE), 36);
+        }
+        Arrays.sort(words);
+        var shuffled = new ArrayList<>(Arrays.asList(words));
+        Collections.shuffle(shuffled, new Random(0));
+        shards = new ArrayList<>();
+        int shardCount = ForkJoinPool.commonPool().getParallelism();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(shuffled.subList(i * size / shardCount, (i + 1) * size / shardCount));
+        }
+    }
+
+    @Benchmark
+    public Trie add() {
+        var trie = new Trie();
+        for (var word : words) {
+            trie.add(word);
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public Trie fromSorted() {
+        return Trie.fromSorted(Arrays.stream(words));
+    }
+
+    @Benchmark
+    public Dawg dawgFromSorted() {
+        return Dawg.fromSorted(Arrays.stream(words));
+    }
+
+    @Benchmark
+    public Trie addAll() {
+        var trie = new Trie();
+        trie.addAll(Arrays.asList(words));
+        return trie;
+    }
+
+    @Benchmark
+    public Trie parallelBuild() {
+        return Trie.parallelBuild(shards, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,437 @@
+package ru.hse.kuzyaka.trie;
+
+import java.util.Arrays;
+
+/**
+ * Map from characters to children of a trie node. Its representation depends on the number of children:
+ * one or two children are kept in fields, a small number of children is kept in sorted arrays,
+ * and many children with close labels are kept in an array indexed by the label.
+ * Changing operations return the map which must replace this one, it may be the same object.
+ * Lookups and replacing of a value do not allocate memory and keys are never boxed.
+ * Entries are iterated by cursors in ascending order of keys:
+ * <pre>
+ * for (int cursor = map.first(); cursor != -1; cursor = map.next(cursor)) { ... }
+ * </pre>
+ *
+ * @param <N> type of children
+ */
+abstract class ChildMap<N> {
+    private static final int MAX_SORTED_SIZE = 16;
+    private static final int DENSE_RANGE_FACTOR = 4;
+    private static final ChildMap<?> EMPTY = new Empty<>();
+
+    /** Returns the map without entries **/
+    @SuppressWarnings("unchecked")
+    static <N> ChildMap<N> empty() {
+        return (ChildMap<N>) EMPTY;
+    }
+
+    /** Returns the value for the given key or {@code null} if there is no such key **/
+    abstract N get(char key);
+
+    /** Associates the value with the key and returns the resulting map **/
+    abstract ChildMap<N> put(char key, N value);
+
+    /** Removes the key if it is present and returns the resulting map **/
+    abstract ChildMap<N> remove(char key);
+
+    abstract int size();
+
+    /** Returns the cursor of the entry with the least key or -1 if the map is empty **/
+    abstract int first();
+
+    /** Returns the cursor of the entry following the given one or -1 if it is the last one **/
+    abstract int next(int cursor);
+
+    abstract char keyAt(int cursor);
+
+    abstract N valueAt(int cursor);
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ChildMap)) {
+            return false;
+        }
+        var other = (ChildMap<?>) o;
+        if (size() != other.size()) {
+            return false;
+        }
+        for (int cursor = first(); cursor != -1; cursor = next(cursor)) {
+            if (!valueAt(cursor).equals(other.get(keyAt(cursor)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int cursor = first(); cursor != -1; cursor = next(cursor)) {
+            hash += keyAt(cursor) ^ valueAt(cursor).hashCode();
+        }
+        return hash;
+    }
+
+    private static class Empty<N> extends ChildMap<N> {
+        @Override
+        N get(char key) {
+            return null;
+        }
+
+        @Override
+        ChildMap<N> put(char key, N value) {
+            return new Single<>(key, value);
+        }
+
+        @Override
+        ChildMap<N> remove(char key) {
+            return this;
+        }
+
+        @Override
+        int size() {
+            return 0;
+        }
+
+        @Override
+        int first() {
+            return -1;
+        }
+
+        @Override
+        int next(int cursor) {
+            return -1;
+        }
+
+        @Override
+        char keyAt(int cursor) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        @Override
+        N valueAt(int cursor) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private static class Single<N> extends ChildMap<N> {
+        private final char key;
+        private N value;
+
+        private Single(char key, N value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        N get(char key) {
+            return this.key == key ? value : null;
+        }
+
+        @Override
+        ChildMap<N> put(char key, N value) {
+            if (this.key == key) {
+                this.value = value;
+                return this;
+            }
+            return key < this.key ? new Pair<>(key, value, this.key, this.value)
+                    : new Pair<>(this.key, this.value, key, value);
+        }
+
+        @Override
+        ChildMap<N> remove(char key) {
+            return this.key == key ? empty() : this;
+        }
+
+        @Override
+        int size() {
+            return 1;
+        }
+
+        @Override
+        int first() {
+            return 0;
+        }
+
+        @Override
+        int next(int cursor) {
+            return -1;
+        }
+
+        @Override
+        char keyAt(int cursor) {
+            return key;
+        }
+
+        @Override
+        N valueAt(int cursor) {
+            return value;
+        }
+    }
+
+    /** Two entries, the first key is less than the second one **/
+    private static class Pair<N> extends ChildMap<N> {
+        private final char firstKey;
+        private N firstValue;
+        private final char secondKey;
+        private N secondValue;
+
+        private Pair(char firstKey, N firstValue, char secondKey, N secondValue) {
+            this.firstKey = firstKey;
+            this.firstValue = firstValue;
+            this.secondKey = secondKey;
+            this.secondValue = secondValue;
+        }
+
+        @Override
+        N get(char key) {
+            if (key == firstKey) {
+                return firstValue;
+            }
+            return key == secondKey ? secondValue : null;
+        }
+
+        @Override
+        ChildMap<N> put(char key, N value) {
+            if (key == firstKey) {
+                firstValue = value;
+                return this;
+            }
+            if (key == secondKey) {
+                secondValue = value;
+                return this;
+            }
+            var sorted = new Sorted<N>(MAX_SORTED_SIZE / 4);
+            sorted.put(firstKey, firstValue);
+            sorted.put(secondKey, secondValue);
+            return sorted.put(key, value);
+        }
+
+        @Override
+        ChildMap<N> remove(char key) {
+            if (key == firstKey) {
+                return new Single<>(secondKey, secondValue);
+            }
+            return key == secondKey ? new Single<>(firstKey, firstValue) : this;
+        }
+
+        @Override
+        int size() {
+            return 2;
+        }
+
+        @Override
+        int first() {
+            return 0;
+        }
+
+        @Override
+        int next(int cursor) {
+            return cursor == 0 ? 1 : -1;
+        }
+
+        @Override
+        char keyAt(int cursor) {
+            return cursor == 0 ? firstKey : secondKey;
+        }
+
+        @Override
+        N valueAt(int cursor) {
+            return cursor == 0 ? firstValue : secondValue;
+        }
+    }
+
+    /** Entries in arrays sorted by keys, keys are found by binary search **/
+    private static class Sorted<N> extends ChildMap<N> {
+        private char[] keys;
+        private Object[] values;
+        private int size;
+
+        private Sorted(int capacity) {
+            keys = new char[capacity];
+            values = new Object[capacity];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        N get(char key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            return index >= 0 ? (N) values[index] : null;
+        }
+
+        @Override
+        ChildMap<N> put(char key, N value) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index >= 0) {
+                values[index] = value;
+                return this;
+            }
+            if (size >= MAX_SORTED_SIZE) {
+                char minKey = (char) Math.min(key, keys[0]);
+                char maxKey = (char) Math.max(key, keys[size - 1]);
+                if (Dense.fits(minKey, maxKey, size + 1)) {
+                    var dense = new Dense<N>(minKey, maxKey);
+                    for (int i = 0; i < size; i++) {
+                        dense.put(keys[i], valueAt(i));
+                    }
+                    return dense.put(key, value);
+                }
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            index = -index - 1;
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            keys[index] = key;
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        ChildMap<N> remove(char key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index < 0) {
+                return this;
+            }
+            if (size == 3) {
+                int first = index == 0 ? 1 : 0;
+                int second = index == 2 ? 1 : 2;
+                return new Pair<>(keys[first], valueAt(first), keys[second], valueAt(second));
+            }
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            values[--size] = null;
+            return this;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int first() {
+            return 0;
+        }
+
+        @Override
+        int next(int cursor) {
+            return cursor + 1 < size ? cursor + 1 : -1;
+        }
+
+        @Override
+        char keyAt(int cursor) {
+            return keys[cursor];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        N valueAt(int cursor) {
+            return (N) values[cursor];
+        }
+    }
+
+    /** Entries in an array indexed by the difference between the key and the least possible key **/
+    private static class Dense<N> extends ChildMap<N> {
+        private char base;
+        private Object[] values;
+        private int size;
+
+        private Dense(char minKey, char maxKey) {
+            base = minKey;
+            values = new Object[maxKey - minKey + 1];
+        }
+
+        /** Tells if the keys from the given range are dense enough to keep them in a dense map **/
+        private static boolean fits(char minKey, char maxKey, int size) {
+            return maxKey - minKey + 1 <= DENSE_RANGE_FACTOR * size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        N get(char key) {
+            int index = key - base;
+            return index >= 0 && index < values.length ? (N) values[index] : null;
+        }
+
+        @Override
+        ChildMap<N> put(char key, N value) {
+            int index = key - base;
+            if (index < 0 || index >= values.length) {
+                char minKey = (char) Math.min(key, base);
+                char maxKey = (char) Math.max(key, base + values.length - 1);
+                if (!fits(minKey, maxKey, size + 1)) {
+                    return toSorted().put(key, value);
+                }
+                var resized = new Object[maxKey - minKey + 1];
+                System.arraycopy(values, 0, resized, base - minKey, values.length);
+                values = resized;
+                base = minKey;
+                index = key - base;
+            }
+            if (values[index] == null) {
+                size++;
+            }
+            values[index] = value;
+            return this;
+        }
+
+        @Override
+        ChildMap<N> remove(char key) {
+            int index = key - base;
+            if (index < 0 || index >= values.length || values[index] == null) {
+                return this;
+            }
+            values[index] = null;
+            size--;
+            return size <= MAX_SORTED_SIZE / 2 ? toSorted() : this;
+        }
+
+        private Sorted<N> toSorted() {
+            var sorted = new Sorted<N>(2 * size);
+            for (int cursor = first(); cursor != -1; cursor = next(cursor)) {
+                sorted.keys[sorted.size] = keyAt(cursor);
+                sorted.values[sorted.size++] = values[cursor];
+            }
+            return sorted;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int first() {
+            return next(-1);
+        }
+
+        @Override
+        int next(int cursor) {
+            for (int i = cursor + 1; i < values.length; i++) {
+                if (values[i] != null) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        char keyAt(int cursor) {
+            return (char) (base + cursor);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        N valueAt(int cursor) {
+            return (N) values[cursor];
+        }
+    }
+}
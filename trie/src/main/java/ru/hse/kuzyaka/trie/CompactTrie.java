@@ -0,0 +1,152 @@
+package ru.hse.kuzyaka.trie;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Immutable trie stored in a few flat arrays. Nodes are numbered in level order (like in LOUDS encoding),
+ * so the children of every node are consecutive and sorted by their labels, and a node is found by a binary search
+ * among the children of its parent. Instead of rank queries over a bit vector the index of the first child of
+ * every node is stored explicitly. A node takes about ten bytes, and nodes of the same level lie next to each other.
+ */
+public class CompactTrie {
+    /** Magic bytes {@code CTRI} of the file format **/
+    static final int FORMAT_MAGIC = 0x43545249;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    private final int[] childrenStart;
+    private final char[] labels;
+    private final int[] terminalsInSubtree;
+    private final long[] terminals;
+
+    /**
+     * Builds a compact trie containing the same strings as the given one
+     *
+     * @param trie trie to copy strings from
+     */
+    public CompactTrie(@NotNull Trie trie) {
+        var queue = new ArrayDeque<Trie.TrieNode>();
+        queue.add(trie.getRoot());
+        int capacity = 16;
+        int[] childrenStart = new int[capacity + 1];
+        char[] labels = new char[capacity];
+        int[] terminalsInSubtree = new int[capacity];
+        long[] terminals = new long[capacity / Long.SIZE + 1];
+        int nodeCount = 1;
+        for (int node = 0; !queue.isEmpty(); node++) {
+            var current = queue.poll();
+            var children = current.getChildren();
+            if (nodeCount + children.size() > capacity) {
+                capacity = Math.max(2 * capacity, nodeCount + children.size());
+                childrenStart = Arrays.copyOf(childrenStart, capacity + 1);
+                labels = Arrays.copyOf(labels, capacity);
+                terminalsInSubtree = Arrays.copyOf(terminalsInSubtree, capacity);
+                terminals = Arrays.copyOf(terminals, capacity / Long.SIZE + 1);
+            }
+            childrenStart[node] = nodeCount;
+            terminalsInSubtree[node] = current.getTerminalsInSubtree();
+            if (current.isTerminal()) {
+                terminals[node / Long.SIZE] |= 1L << node;
+            }
+            for (int cursor = children.first(); cursor != -1; cursor = children.next(cursor)) {
+                labels[nodeCount++] = children.keyAt(cursor);
+                queue.add(children.valueAt(cursor));
+            }
+        }
+        childrenStart[nodeCount] = nodeCount;
+        this.childrenStart = Arrays.copyOf(childrenStart, nodeCount + 1);
+        this.labels = Arrays.copyOf(labels, nodeCount);
+        this.terminalsInSubtree = Arrays.copyOf(terminalsInSubtree, nodeCount);
+        this.terminals = Arrays.copyOf(terminals, nodeCount / Long.SIZE + 1);
+    }
+
+    /**
+     * Returns the number of stored strings
+     *
+     * @return the number of stored strings
+     */
+    public int size() {
+        return terminalsInSubtree[0];
+    }
+
+    /**
+     * Checks if the given string is in this trie
+     *
+     * @param element the string which is looked for
+     * @return <code>true</code> if the trie contains this string; <code>false</code> otherwise
+     */
+    public boolean contains(@NotNull String element) {
+        int node = find(element);
+        return node >= 0 && (terminals[node / Long.SIZE] & (1L << node)) != 0;
+    }
+
+    /**
+     * Tells how many strings in this trie start with the given prefix
+     *
+     * @param prefix the common prefix of all counted strings
+     * @return the number of strings in this trie starting with the prefix
+     */
+    public int howManyStartsWithPrefix(@NotNull String prefix) {
+        int node = find(prefix);
+        return node >= 0 ? terminalsInSubtree[node] : 0;
+    }
+
+    /**
+     * Returns the number of nodes of this trie including the root
+     *
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return labels.length;
+    }
+
+    /**
+     * Writes this trie in the format which can be queried in place by {@link MappedTrie}.
+     * After the header of 16 bytes (the magic bytes {@code CTRI}, the version, the number of nodes and
+     * a reserved zero) the arrays follow: terminal flags as longs, indices of the first children and
+     * numbers of strings in subtrees as ints and labels as chars. All numbers are big-endian.
+     * The stream is flushed but not closed
+     *
+     * @param out stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(@NotNull OutputStream out) throws IOException {
+        var dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        dataOut.writeInt(FORMAT_MAGIC);
+        dataOut.writeInt(FORMAT_VERSION);
+        dataOut.writeInt(nodeCount());
+        dataOut.writeInt(0);
+        for (long value : terminals) {
+            dataOut.writeLong(value);
+        }
+        for (int value : childrenStart) {
+            dataOut.writeInt(value);
+        }
+        for (int value : terminalsInSubtree) {
+            dataOut.writeInt(value);
+        }
+        for (char value : labels) {
+            dataOut.writeChar(value);
+        }
+        dataOut.flush();
+    }
+
+    /** Returns the node at the end of the path, or -1 if there is no such path **/
+    private int find(@NotNull String path) {
+        int node = 0;
+        for (int i = 0; i < path.length(); i++) {
+            node = Arrays.binarySearch(labels, childrenStart[node], childrenStart[node + 1], path.charAt(i));
+            if (node < 0) {
+                return -1;
+            }
+        }
+        return node;
+    }
+}
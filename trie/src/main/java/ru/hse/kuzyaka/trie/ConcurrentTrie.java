@@ -0,0 +1,228 @@
+package ru.hse.kuzyaka.trie;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe trie for storing set of strings. Reads never block and take no locks. Children of a node are
+ * kept in an immutable sorted array which is replaced by compare-and-set when a child is added, so writers
+ * synchronize only when they add children to the same node. A string is added or removed by compare-and-set
+ * of the terminal flag of its node, so {@code add}, {@code remove} and {@code contains} are linearizable.
+ * Counters of strings in subtrees are updated atomically after the flag, so {@link #size()} and
+ * {@link #howManyStartsWithPrefix(String)} may lag behind concurrent modifications. Every modification updates
+ * the counters of all the ancestors, so the root and the nodes near it are updated by all writers. Their counters
+ * are striped ({@link LongAdder}), so writers with different prefixes do not contend on them, at the cost
+ * of a few hundred bytes per such node and of reads summing the stripes. Deeper nodes keep plain atomic counters.
+ * Nodes are never removed, a removed string only clears the flag, so the trie keeps all the nodes
+ * it has ever had.
+ */
+public class ConcurrentTrie {
+    private static final VarHandle CHILDREN;
+    private static final VarHandle IS_TERMINAL;
+    private static final VarHandle TERMINALS_IN_SUBTREE;
+    /** Nodes which are closer to the root than this depth have striped counters **/
+    private static final int STRIPED_DEPTH = 2;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            CHILDREN = lookup.findVarHandle(ConcurrentNode.class, "children", Children.class);
+            IS_TERMINAL = lookup.findVarHandle(ConcurrentNode.class, "isTerminal", boolean.class);
+            TERMINALS_IN_SUBTREE = lookup.findVarHandle(ConcurrentNode.class, "terminalsInSubtree", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Root node which represents empty string. */
+    private final ConcurrentNode root = new ConcurrentNode(null);
+
+    /**
+     * Returns the size of the trie (the number of stored strings)
+     *
+     * @return the number of stored strings
+     */
+    public int size() {
+        return root.getTerminalsInSubtree();
+    }
+
+    /**
+     * Checks if the given string is in this trie
+     *
+     * @param element the string which is looked for
+     * @return <code>true</code> if the trie contains this string; <code>false</code> otherwise
+     */
+    public boolean contains(@NotNull String element) {
+        var node = find(element);
+        return node != null && node.isTerminal;
+    }
+
+    /**
+     * Adds the given string to this trie if it wasn't already in it
+     *
+     * @param element the string which is added
+     * @return <code>true</code> if adding was successful; <code>false</code> otherwise
+     */
+    public boolean add(@NotNull String element) {
+        var node = root;
+        for (int i = 0; i < element.length(); i++) {
+            node = node.getOrAddChild(element.charAt(i));
+        }
+        if (!IS_TERMINAL.compareAndSet(node, false, true)) {
+            return false;
+        }
+        node.addToCounters(1);
+        return true;
+    }
+
+    /**
+     * Removes the given string from this trie if the trie actually contains it
+     *
+     * @param element the string which is removed
+     * @return <code>true</code> if removal was successful; <code>false</code> otherwise
+     */
+    public boolean remove(@NotNull String element) {
+        var node = find(element);
+        if (node == null || !IS_TERMINAL.compareAndSet(node, true, false)) {
+            return false;
+        }
+        node.addToCounters(-1);
+        return true;
+    }
+
+    /**
+     * Tells how many strings in this trie start with the given prefix
+     *
+     * @param prefix the common prefix of all counted strings
+     * @return the number of strings in this trie starting with the prefix
+     */
+    public int howManyStartsWithPrefix(@NotNull String prefix) {
+        var node = find(prefix);
+        return node == null ? 0 : node.getTerminalsInSubtree();
+    }
+
+    private @Nullable ConcurrentNode find(@NotNull String path) {
+        var node = root;
+        for (int i = 0; i < path.length() && node != null; i++) {
+            node = node.children.get(path.charAt(i));
+        }
+        return node;
+    }
+
+    private static class ConcurrentNode {
+        private final @Nullable ConcurrentNode parent;
+        private volatile Children children = Children.EMPTY;
+        private volatile boolean isTerminal;
+        private volatile int terminalsInSubtree;
+        private final @Nullable LongAdder stripedTerminalsInSubtree;
+
+        private ConcurrentNode(@Nullable ConcurrentNode parent) {
+            this.parent = parent;
+            int depth = 0;
+            for (var node = parent; node != null && depth < STRIPED_DEPTH; node = node.parent) {
+                depth++;
+            }
+            stripedTerminalsInSubtree = depth < STRIPED_DEPTH ? new LongAdder() : null;
+        }
+
+        private int getTerminalsInSubtree() {
+            return stripedTerminalsInSubtree != null ? stripedTerminalsInSubtree.intValue() : terminalsInSubtree;
+        }
+
+        private ConcurrentNode getOrAddChild(char label) {
+            ConcurrentNode added = null;
+            while (true) {
+                var current = children;
+                var child = current.get(label);
+                if (child != null) {
+                    return child;
+                }
+                if (added == null) {
+                    added = new ConcurrentNode(this);
+                }
+                if (CHILDREN.compareAndSet(this, current, current.with(label, added))) {
+                    return added;
+                }
+            }
+        }
+
+        private void addToCounters(int delta) {
+            for (var node = this; node != null; node = node.parent) {
+                if (node.stripedTerminalsInSubtree != null) {
+                    node.stripedTerminalsInSubtree.add(delta);
+                } else {
+                    TERMINALS_IN_SUBTREE.getAndAdd(node, delta);
+                }
+            }
+        }
+    }
+
+    /** Immutable children of a node sorted by labels, a single child is kept without arrays **/
+    private abstract static class Children {
+        private static final Children EMPTY = new Many(new char[0], new ConcurrentNode[0]);
+
+        abstract @Nullable ConcurrentNode get(char label);
+
+        /** Returns a copy with the given child added, the label must be absent **/
+        abstract Children with(char label, @NotNull ConcurrentNode node);
+    }
+
+    private static class Single extends Children {
+        private final char label;
+        private final ConcurrentNode node;
+
+        private Single(char label, @NotNull ConcurrentNode node) {
+            this.label = label;
+            this.node = node;
+        }
+
+        @Override
+        @Nullable ConcurrentNode get(char label) {
+            return this.label == label ? node : null;
+        }
+
+        @Override
+        Children with(char label, @NotNull ConcurrentNode node) {
+            return label < this.label ? new Many(new char[]{label, this.label}, new ConcurrentNode[]{node, this.node})
+                    : new Many(new char[]{this.label, label}, new ConcurrentNode[]{this.node, node});
+        }
+    }
+
+    private static class Many extends Children {
+        private final char[] labels;
+        private final ConcurrentNode[] nodes;
+
+        private Many(char[] labels, ConcurrentNode[] nodes) {
+            this.labels = labels;
+            this.nodes = nodes;
+        }
+
+        @Override
+        @Nullable ConcurrentNode get(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? nodes[index] : null;
+        }
+
+        @Override
+        Children with(char label, @NotNull ConcurrentNode node) {
+            if (labels.length == 0) {
+                return new Single(label, node);
+            }
+            int index = -Arrays.binarySearch(labels, label) - 1;
+            var newLabels = new char[labels.length + 1];
+            var newNodes = new ConcurrentNode[nodes.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(nodes, 0, newNodes, 0, index);
+            newLabels[index] = label;
+            newNodes[index] = node;
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(nodes, index, newNodes, index + 1, nodes.length - index);
+            return new Many(newLabels, newNodes);
+        }
+    }
+}
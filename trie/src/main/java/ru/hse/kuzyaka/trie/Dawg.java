@@ -0,0 +1,272 @@
+package ru.hse.kuzyaka.trie;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Immutable minimal acyclic automaton (DAWG) of a set of strings. It is a trie in which equal subtrees are stored
+ * once, so strings with common suffixes share their nodes, and a large lexicon takes several times fewer nodes
+ * than a trie. Nodes are stored in flat arrays: the outgoing edges of every node are consecutive and sorted by
+ * their labels, and every node knows how many strings are accepted from it, so prefixes are counted as in a trie.
+ */
+public class Dawg {
+    private final int root;
+    private final int[] edgeStart;
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] wordCounts;
+    private final long[] terminals;
+
+    private Dawg(int root, int[] edgeStart, char[] labels, int[] targets, int[] wordCounts, long[] terminals) {
+        this.root = root;
+        this.edgeStart = edgeStart;
+        this.labels = labels;
+        this.targets = targets;
+        this.wordCounts = wordCounts;
+        this.terminals = terminals;
+    }
+
+    /**
+     * Builds the minimal automaton of the given strings in one pass by the incremental algorithm of Daciuk et al.
+     * The strings must go in ascending order of {@link String#compareTo(String)}, repeated strings are added once.
+     * Only the path to the last string is kept in mutable form, a node leaving the path is replaced by an equal
+     * node built earlier if there is one, so the whole trie is never built
+     *
+     * @param words sorted strings
+     * @return automaton accepting the strings
+     * @throws IllegalArgumentException if the strings are not sorted
+     */
+    public static Dawg fromSorted(@NotNull Stream<String> words) {
+        var builder = new Builder();
+        words.forEachOrdered(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of stored strings
+     *
+     * @return the number of stored strings
+     */
+    public int size() {
+        return wordCounts[root];
+    }
+
+    /**
+     * Checks if the given string is in this automaton
+     *
+     * @param element the string which is looked for
+     * @return <code>true</code> if the automaton contains this string; <code>false</code> otherwise
+     */
+    public boolean contains(@NotNull String element) {
+        int node = find(element);
+        return node >= 0 && (terminals[node / Long.SIZE] & (1L << node)) != 0;
+    }
+
+    /**
+     * Tells how many strings in this automaton start with the given prefix
+     *
+     * @param prefix the common prefix of all counted strings
+     * @return the number of strings in this automaton starting with the prefix
+     */
+    public int howManyStartsWithPrefix(@NotNull String prefix) {
+        int node = find(prefix);
+        return node >= 0 ? wordCounts[node] : 0;
+    }
+
+    /**
+     * Returns the number of nodes of this automaton including the root
+     *
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return wordCounts.length;
+    }
+
+    /** Returns the node at the end of the path or -1 if there is no such path **/
+    private int find(@NotNull String path) {
+        int node = root;
+        for (int i = 0; i < path.length(); i++) {
+            int edge = Arrays.binarySearch(labels, edgeStart[node], edgeStart[node + 1], path.charAt(i));
+            if (edge < 0) {
+                return -1;
+            }
+            node = targets[edge];
+        }
+        return node;
+    }
+
+    /**
+     * Keeps the nodes on the path to the last added string and the register of finished nodes. Finished nodes
+     * are numbered in the order they are finished, children before parents, so their edges are appended
+     * to the arrays as they are. The register is an open addressing hash table of node numbers
+     **/
+    private static class Builder {
+        private PathNode[] path = {new PathNode()};
+        private String previous;
+        private int nodeCount;
+        private int[] edgeStart = new int[17];
+        private int[] wordCounts = new int[16];
+        private int[] hashes = new int[16];
+        private long[] terminals = new long[1];
+        private char[] labels = new char[16];
+        private int[] targets = new int[16];
+        private int[] register = new int[32];
+
+        private void add(@NotNull String word) {
+            int common = 0;
+            if (previous != null) {
+                int order = previous.compareTo(word);
+                if (order == 0) {
+                    return;
+                }
+                if (order > 0) {
+                    throw new IllegalArgumentException("Strings are not sorted: " + word + " goes after " + previous);
+                }
+                common = Trie.commonPrefixLength(previous, word);
+                finishPath(common);
+            }
+            if (word.length() >= path.length) {
+                int oldLength = path.length;
+                path = Arrays.copyOf(path, Math.max(2 * oldLength, word.length() + 1));
+                for (int i = oldLength; i < path.length; i++) {
+                    path[i] = new PathNode();
+                }
+            }
+            for (int depth = common + 1; depth <= word.length(); depth++) {
+                path[depth].clear();
+            }
+            path[word.length()].isTerminal = true;
+            path[word.length()].wordCount = 1;
+            previous = word;
+        }
+
+        private Dawg build() {
+            if (previous != null) {
+                finishPath(0);
+            }
+            int root = finish(path[0]);
+            edgeStart = Arrays.copyOf(edgeStart, nodeCount + 1);
+            int edgeCount = edgeStart[nodeCount];
+            return new Dawg(root, edgeStart, Arrays.copyOf(labels, edgeCount), Arrays.copyOf(targets, edgeCount),
+                    Arrays.copyOf(wordCounts, nodeCount), Arrays.copyOf(terminals, nodeCount / Long.SIZE + 1));
+        }
+
+        /** Finishes the nodes on the path to the previous string which are deeper than the given depth **/
+        private void finishPath(int depth) {
+            for (int i = previous.length(); i > depth; i--) {
+                int node = finish(path[i]);
+                path[i - 1].addEdge(previous.charAt(i - 1), node, wordCounts[node]);
+            }
+        }
+
+        /** Returns the registered node equal to the given one, registering it if there is no such node **/
+        private int finish(@NotNull PathNode pathNode) {
+            int hash = pathNode.hash();
+            int mask = register.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int node = register[slot] - 1;
+                if (node < 0) {
+                    node = append(pathNode, hash);
+                    register[slot] = node + 1;
+                    if (2 * nodeCount > register.length) {
+                        rehash();
+                    }
+                    return node;
+                }
+                if (hashes[node] == hash && isEqual(node, pathNode)) {
+                    return node;
+                }
+            }
+        }
+
+        private boolean isEqual(int node, @NotNull PathNode pathNode) {
+            int start = edgeStart[node];
+            if (edgeStart[node + 1] - start != pathNode.size || isTerminal(node) != pathNode.isTerminal) {
+                return false;
+            }
+            for (int i = 0; i < pathNode.size; i++) {
+                if (labels[start + i] != pathNode.labels[i] || targets[start + i] != pathNode.targets[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isTerminal(int node) {
+            return (terminals[node / Long.SIZE] & (1L << node)) != 0;
+        }
+
+        private int append(@NotNull PathNode pathNode, int hash) {
+            int node = nodeCount++;
+            if (nodeCount == wordCounts.length) {
+                edgeStart = Arrays.copyOf(edgeStart, 2 * nodeCount + 1);
+                wordCounts = Arrays.copyOf(wordCounts, 2 * nodeCount);
+                hashes = Arrays.copyOf(hashes, 2 * nodeCount);
+                terminals = Arrays.copyOf(terminals, 2 * nodeCount / Long.SIZE + 1);
+            }
+            int start = edgeStart[node];
+            if (start + pathNode.size > labels.length) {
+                int capacity = Math.max(2 * labels.length, start + pathNode.size);
+                labels = Arrays.copyOf(labels, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+            }
+            System.arraycopy(pathNode.labels, 0, labels, start, pathNode.size);
+            System.arraycopy(pathNode.targets, 0, targets, start, pathNode.size);
+            edgeStart[node + 1] = start + pathNode.size;
+            wordCounts[node] = pathNode.wordCount;
+            hashes[node] = hash;
+            if (pathNode.isTerminal) {
+                terminals[node / Long.SIZE] |= 1L << node;
+            }
+            return node;
+        }
+
+        private void rehash() {
+            register = new int[2 * register.length];
+            int mask = register.length - 1;
+            for (int node = 0; node < nodeCount; node++) {
+                int slot = hashes[node] & mask;
+                while (register[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                register[slot] = node + 1;
+            }
+        }
+    }
+
+    /** Mutable node on the path to the last added string, its children are already finished **/
+    private static class PathNode {
+        private char[] labels = new char[4];
+        private int[] targets = new int[4];
+        private int size;
+        private boolean isTerminal;
+        private int wordCount;
+
+        private void clear() {
+            size = 0;
+            isTerminal = false;
+            wordCount = 0;
+        }
+
+        private void addEdge(char label, int target, int targetWordCount) {
+            if (size == labels.length) {
+                labels = Arrays.copyOf(labels, 2 * size);
+                targets = Arrays.copyOf(targets, 2 * size);
+            }
+            labels[size] = label;
+            targets[size++] = target;
+            wordCount += targetWordCount;
+        }
+
+        private int hash() {
+            int hash = isTerminal ? 1 : 0;
+            for (int i = 0; i < size; i++) {
+                hash = 31 * (31 * hash + labels[i]) + targets[i];
+            }
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
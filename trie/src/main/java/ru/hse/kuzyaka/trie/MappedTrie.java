@@ -0,0 +1,135 @@
+package ru.hse.kuzyaka.trie;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only trie which queries a file written by {@link CompactTrie#writeTo} in place. The file is mapped
+ * into memory, so opening takes constant time, nothing is copied to the heap, and processes opening the same
+ * file share its pages in the page cache. Every array of the file is mapped separately, so the file may be
+ * larger than 2 GiB. Mapped memory is released when the trie is garbage collected.
+ */
+public class MappedTrie {
+    private final int nodeCount;
+    private final ByteBuffer terminals;
+    private final ByteBuffer childrenStart;
+    private final ByteBuffer terminalsInSubtree;
+    private final ByteBuffer labels;
+
+    /**
+     * Maps the given file written by {@link CompactTrie#writeTo}
+     *
+     * @param file file to map
+     * @throws IOException if an I/O error occurs or the file has wrong format
+     */
+    public MappedTrie(@NotNull Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < CompactTrie.HEADER_SIZE) {
+                throw new IOException("File is too small");
+            }
+            var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, CompactTrie.HEADER_SIZE);
+            if (header.getInt() != CompactTrie.FORMAT_MAGIC) {
+                throw new IOException("Unknown format");
+            }
+            int version = header.getInt();
+            if (version != CompactTrie.FORMAT_VERSION) {
+                throw new IOException("Unsupported version of the format: " + version);
+            }
+            nodeCount = header.getInt();
+            if (nodeCount <= 0) {
+                throw new IOException("Corrupted data");
+            }
+            long terminalsLength = (long) (nodeCount / Long.SIZE + 1) * Long.BYTES;
+            long childrenStartLength = (long) (nodeCount + 1) * Integer.BYTES;
+            long terminalsInSubtreeLength = (long) nodeCount * Integer.BYTES;
+            long labelsLength = (long) nodeCount * Character.BYTES;
+            if (childrenStartLength > Integer.MAX_VALUE) {
+                throw new IOException("Trie is too large to map");
+            }
+            long position = CompactTrie.HEADER_SIZE;
+            if (channel.size() != position + terminalsLength + childrenStartLength + terminalsInSubtreeLength
+                    + labelsLength) {
+                throw new IOException("Corrupted data");
+            }
+            terminals = channel.map(FileChannel.MapMode.READ_ONLY, position, terminalsLength);
+            position += terminalsLength;
+            childrenStart = channel.map(FileChannel.MapMode.READ_ONLY, position, childrenStartLength);
+            position += childrenStartLength;
+            terminalsInSubtree = channel.map(FileChannel.MapMode.READ_ONLY, position, terminalsInSubtreeLength);
+            position += terminalsInSubtreeLength;
+            labels = channel.map(FileChannel.MapMode.READ_ONLY, position, labelsLength);
+        }
+    }
+
+    /**
+     * Returns the number of stored strings
+     *
+     * @return the number of stored strings
+     */
+    public int size() {
+        return terminalsInSubtree.getInt(0);
+    }
+
+    /**
+     * Checks if the given string is in this trie
+     *
+     * @param element the string which is looked for
+     * @return <code>true</code> if the trie contains this string; <code>false</code> otherwise
+     */
+    public boolean contains(@NotNull String element) {
+        int node = find(element);
+        return node >= 0 && (terminals.getLong(node / Long.SIZE * Long.BYTES) & (1L << node)) != 0;
+    }
+
+    /**
+     * Tells how many strings in this trie start with the given prefix
+     *
+     * @param prefix the common prefix of all counted strings
+     * @return the number of strings in this trie starting with the prefix
+     */
+    public int howManyStartsWithPrefix(@NotNull String prefix) {
+        int node = find(prefix);
+        return node >= 0 ? terminalsInSubtree.getInt(node * Integer.BYTES) : 0;
+    }
+
+    /**
+     * Returns the number of nodes of this trie including the root
+     *
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /** Returns the node at the end of the path, or -1 if there is no such path **/
+    private int find(@NotNull String path) {
+        int node = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char label = path.charAt(i);
+            int low = childrenStart.getInt(node * Integer.BYTES);
+            int high = childrenStart.getInt((node + 1) * Integer.BYTES) - 1;
+            node = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char middleLabel = labels.getChar(middle * Character.BYTES);
+                if (middleLabel < label) {
+                    low = middle + 1;
+                } else if (middleLabel > label) {
+                    high = middle - 1;
+                } else {
+                    node = middle;
+                    break;
+                }
+            }
+            if (node < 0) {
+                return -1;
+            }
+        }
+        return node;
+    }
+}
@@ -0,0 +1,248 @@
+package ru.hse.kuzyaka.trie;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+/**
+ * Path-compressed trie (radix tree) for storing set of strings. Every edge stores a substring, and every node
+ * except the root is either terminal or has at least two children, so chains of nodes with a single child
+ * take one node. Edges are split when a string ends or branches inside them and merged back on removal.
+ * Semantics of the operations are the same as in {@link Trie}.
+ */
+public class RadixTrie {
+    /** Root node which represents empty string. */
+    private RadixNode root = new RadixNode("", null);
+
+    /**
+     * Returns the size of the trie (the number of stored strings)
+     *
+     * @return the number of stored strings
+     */
+    public int size() {
+        return root.terminalsInSubtree;
+    }
+
+    /**
+     * Checks if this trie is equal to another object (other object must be instance of {@code RadixTrie}).
+     * Equality of tries means that they contain the same set of strings
+     *
+     * @param o object to be compared with
+     * @return {@code true} if this tree is equal to other trie
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RadixTrie trie = (RadixTrie) o;
+        return Objects.equals(root, trie.root);
+    }
+
+    /**
+     * Returns hashcode of this trie
+     *
+     * @return hashcode of this trie
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(root);
+    }
+
+    /**
+     * Checks if the given string is in this trie
+     *
+     * @param element the string which is looked for
+     * @return <code>true</code> if the trie contains this string; <code>false</code> otherwise
+     */
+    public boolean contains(@NotNull String element) {
+        var node = find(element, false);
+        return node != null && node.isTerminal;
+    }
+
+    /**
+     * Adds the given string to this trie if it wasn't already in it
+     *
+     * @param element the string which is added
+     * @return <code>true</code> if adding was successful; <code>false</code> otherwise
+     */
+    public boolean add(@NotNull String element) {
+        var node = root;
+        int position = 0;
+        while (position < element.length()) {
+            var child = node.children.get(element.charAt(position));
+            if (child == null) {
+                child = new RadixNode(element.substring(position), node);
+                node.children = node.children.put(child.label.charAt(0), child);
+                child.makeTerminal();
+                return true;
+            }
+            int common = commonPrefixLength(child.label, element, position);
+            if (common < child.label.length()) {
+                child = child.split(common);
+            }
+            node = child;
+            position += common;
+        }
+        if (node.isTerminal) {
+            return false;
+        }
+        node.makeTerminal();
+        return true;
+    }
+
+    /**
+     * Removes the given string from this trie if the trie actually contains it
+     *
+     * @param element the string which is removed
+     * @return <code>true</code> if removal was successful; <code>false</code> otherwise
+     */
+    public boolean remove(@NotNull String element) {
+        var node = find(element, false);
+        if (node == null || !node.isTerminal) {
+            return false;
+        }
+        node.makeNotTerminal();
+        return true;
+    }
+
+    /**
+     * Tells how many strings in this trie start with the given prefix
+     *
+     * @param prefix the common prefix of all counted strings
+     * @return the number of strings in this trie starting with the prefix
+     */
+    public int howManyStartsWithPrefix(@NotNull String prefix) {
+        var node = find(prefix, true);
+        return node == null ? 0 : node.terminalsInSubtree;
+    }
+
+    /** Returns the number of nodes including the root **/
+    int nodeCount() {
+        int count = 0;
+        var stack = new ArrayDeque<RadixNode>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            count++;
+            for (int cursor = node.children.first(); cursor != -1; cursor = node.children.next(cursor)) {
+                stack.push(node.children.valueAt(cursor));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the node where the given path ends or {@code null} if there is no such path.
+     * If the path may end inside an edge, the node at the end of that edge is returned
+     */
+    private @Nullable RadixNode find(@NotNull String path, boolean mayEndInsideEdge) {
+        var node = root;
+        int position = 0;
+        while (position < path.length()) {
+            node = node.children.get(path.charAt(position));
+            if (node == null) {
+                return null;
+            }
+            int common = commonPrefixLength(node.label, path, position);
+            position += common;
+            if (common < node.label.length()) {
+                return position == path.length() && mayEndInsideEdge ? node : null;
+            }
+        }
+        return node;
+    }
+
+    private static int commonPrefixLength(@NotNull String label, @NotNull String element, int position) {
+        int length = Math.min(label.length(), element.length() - position);
+        int common = 0;
+        while (common < length && label.charAt(common) == element.charAt(position + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    private static class RadixNode {
+        private boolean isTerminal;
+        private int terminalsInSubtree;
+        private String label;
+        private ChildMap<RadixNode> children = ChildMap.empty();
+        private @Nullable RadixNode parent;
+
+        private RadixNode(@NotNull String label, @Nullable RadixNode parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+
+        /** Splits the edge to this node after the given number of characters and returns the new middle node **/
+        private RadixNode split(int length) {
+            var middle = new RadixNode(label.substring(0, length), parent);
+            middle.terminalsInSubtree = terminalsInSubtree;
+            label = label.substring(length);
+            parent.children = parent.children.put(middle.label.charAt(0), middle);
+            middle.children = middle.children.put(label.charAt(0), this);
+            parent = middle;
+            return middle;
+        }
+
+        /** Merges this node having a single child and no string ending in it with the child **/
+        private void mergeWithChild() {
+            var child = children.valueAt(children.first());
+            child.label = label + child.label;
+            child.parent = parent;
+            parent.children = parent.children.put(label.charAt(0), child);
+        }
+
+        private void makeTerminal() {
+            isTerminal = true;
+            for (var node = this; node != null; node = node.parent) {
+                node.terminalsInSubtree++;
+            }
+        }
+
+        private void makeNotTerminal() {
+            isTerminal = false;
+            for (var node = this; node != null; node = node.parent) {
+                node.terminalsInSubtree--;
+            }
+            if (parent == null) {
+                return;
+            }
+            if (terminalsInSubtree > 0) {
+                if (children.size() == 1) {
+                    mergeWithChild();
+                }
+                return;
+            }
+            parent.children = parent.children.remove(label.charAt(0));
+            if (parent.parent != null && !parent.isTerminal && parent.children.size() == 1) {
+                parent.mergeWithChild();
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RadixNode radixNode = (RadixNode) o;
+            return isTerminal == radixNode.isTerminal &&
+                    terminalsInSubtree == radixNode.terminalsInSubtree &&
+                    label.equals(radixNode.label) &&
+                    Objects.equals(children, radixNode.children);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(isTerminal, terminalsInSubtree, label, children);
+        }
+    }
+}
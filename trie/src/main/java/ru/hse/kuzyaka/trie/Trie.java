@@ -4,14 +4,110 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /** Data structure for storing set of strings. Basic operations have the complexity of O(|length|). */
 public class Trie implements Serializable {
+    private static final byte[] FORMAT_MAGIC = {'T', 'R', 'I', 'E'};
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_CHILDREN = Character.MAX_VALUE + 1;
+
     /** Root node which represents empty string. */
     private TrieNode root = new TrieNode();
 
+    /**
+     * Builds a trie of the given strings in one pass. The strings must go in ascending order of
+     * {@link String#compareTo(String)}, repeated strings are added once. Every node is created once as a child of
+     * the last node of the path to the previous string, and the numbers of strings in subtrees are computed
+     * bottom-up when the subtree is complete, so no path is walked twice. The strings get weight 0
+     *
+     * @param words sorted strings
+     * @return trie containing the strings
+     * @throws IllegalArgumentException if the strings are not sorted
+     */
+    public static Trie fromSorted(@NotNull Stream<String> words) {
+        var trie = new Trie();
+        var path = new TrieNode[16];
+        path[0] = trie.root;
+        String previous = null;
+        for (var iterator = words.iterator(); iterator.hasNext(); ) {
+            var word = iterator.next();
+            int common = 0;
+            if (previous != null) {
+                int order = previous.compareTo(word);
+                if (order == 0) {
+                    continue;
+                }
+                if (order > 0) {
+                    throw new IllegalArgumentException("Strings are not sorted: " + word + " goes after " + previous);
+                }
+                common = commonPrefixLength(previous, word);
+                for (int depth = previous.length(); depth > common; depth--) {
+                    path[depth].computeSubtreeData();
+                    path[depth] = null;
+                }
+            }
+            if (word.length() >= path.length) {
+                path = Arrays.copyOf(path, Math.max(2 * path.length, word.length() + 1));
+            }
+            for (int depth = common; depth < word.length(); depth++) {
+                var node = path[depth];
+                char label = word.charAt(depth);
+                var child = new TrieNode(depth + 1, node, label);
+                node.children = node.children.put(label, child);
+                path[depth + 1] = child;
+            }
+            path[word.length()].isTerminal = true;
+            previous = word;
+        }
+        for (int depth = previous == null ? 0 : previous.length(); depth >= 0; depth--) {
+            path[depth].computeSubtreeData();
+        }
+        return trie;
+    }
+
+    /** Returns the length of the longest common prefix of the strings **/
+    static int commonPrefixLength(@NotNull String first, @NotNull String second) {
+        int length = Math.min(first.length(), second.length());
+        for (int i = 0; i < length; i++) {
+            if (first.charAt(i) != second.charAt(i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Builds a trie of the strings of all the shards. Tries of the shards are built in parallel
+     * in the given pool and merged pairwise
+     *
+     * @param shards collections of strings, a string may be in several shards
+     * @param pool   pool to build the trie in
+     * @return trie containing the strings of all the shards
+     */
+    public static Trie parallelBuild(@NotNull List<? extends Collection<String>> shards, @NotNull ForkJoinPool pool) {
+        if (shards.isEmpty()) {
+            return new Trie();
+        }
+        return pool.invoke(new BuildTask(shards, 0, shards.size()));
+    }
+
     /**
      * Returns the size of the trie (the number of stored strings)
      *
@@ -73,6 +169,7 @@ public class Trie implements Serializable {
         var result = false;
 
         if (!lastNode.isTerminal) {
+            lastNode.weight = 0;
             lastNode.makeTerminal();
             result = true;
         }
@@ -80,6 +177,95 @@ public class Trie implements Serializable {
         return result;
     }
 
+    /**
+     * Adds the given string with the given weight to this trie. If the string is already in the trie,
+     * its weight is replaced. Strings added without weight have weight 0
+     *
+     * @param element the string which is added
+     * @param weight  weight of the string which is used by {@link #autocomplete(String, int)}
+     * @return <code>true</code> if the string was not in the trie; <code>false</code> otherwise
+     */
+    public boolean add(@NotNull String element, long weight) {
+        var lastNode = root.moveWithAdd(element);
+        lastNode.weight = weight;
+        if (lastNode.isTerminal) {
+            lastNode.updateBestWeights();
+            return false;
+        }
+        lastNode.makeTerminal();
+        return true;
+    }
+
+    /**
+     * Adds all the given strings to this trie in parallel using the common pool, see
+     * {@link #addAll(Collection, ForkJoinPool)}
+     *
+     * @param elements the strings which are added
+     * @return <code>true</code> if the trie changed; <code>false</code> otherwise
+     */
+    public boolean addAll(@NotNull Collection<String> elements) {
+        return addAll(elements, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Adds all the given strings to this trie in parallel. The strings are partitioned by their first characters,
+     * a separate trie is built for every part in the given pool and then the parts are merged into this trie.
+     * The weights of the strings which were already in the trie are kept, new strings get weight 0
+     *
+     * @param elements the strings which are added
+     * @param pool     pool to build the parts in
+     * @return <code>true</code> if the trie changed; <code>false</code> otherwise
+     */
+    public boolean addAll(@NotNull Collection<String> elements, @NotNull ForkJoinPool pool) {
+        var parts = new HashMap<Character, List<String>>();
+        for (var element : elements) {
+            char first = element.isEmpty() ? '\0' : element.charAt(0);
+            parts.computeIfAbsent(first, key -> new ArrayList<>()).add(element);
+        }
+        int oldSize = size();
+        var addedTrie = parallelBuild(new ArrayList<>(parts.values()), pool);
+        pool.invoke(ForkJoinTask.adapt(() -> mergeInParallel(addedTrie)));
+        return size() != oldSize;
+    }
+
+    /**
+     * Moves all the strings of the other trie to this trie, the other trie becomes empty.
+     * Subtrees which are only in the other trie are moved without copying, so the merge takes time proportional
+     * to the number of nodes which are in both tries. The weights of the strings which are in both tries are
+     * taken from this trie
+     *
+     * @param other trie to take the strings from
+     */
+    public void merge(@NotNull Trie other) {
+        if (other == this) {
+            return;
+        }
+        root.mergeSubtree(other.root);
+        other.root = new TrieNode();
+    }
+
+    /** Merges the other trie into this one merging the subtrees of children of the root in parallel **/
+    private void mergeInParallel(@NotNull Trie other) {
+        if (other == this) {
+            return;
+        }
+        var tasks = new ArrayList<ForkJoinTask<?>>();
+        root.mergeFlags(other.root);
+        var otherChildren = other.root.children;
+        for (int cursor = otherChildren.first(); cursor != -1; cursor = otherChildren.next(cursor)) {
+            var otherChild = otherChildren.valueAt(cursor);
+            var child = root.children.get(otherChildren.keyAt(cursor));
+            if (child == null) {
+                root.attach(otherChild);
+            } else {
+                tasks.add(ForkJoinTask.adapt(() -> child.mergeSubtree(otherChild)));
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+        root.computeSubtreeData();
+        other.root = new TrieNode();
+    }
+
     /**
      * Removes the given string from this trie if the trie actually contains it
      *
@@ -114,38 +300,294 @@ public class Trie implements Serializable {
     }
 
     /**
-     * Writes this trie as a byte sequence
+     * Returns a lazy iterator over the strings of this trie starting with the given prefix in lexicographic order.
+     * The iterator keeps only the path to the current string, so it takes memory proportional to its length.
+     * The trie must not be modified while the iterator is used
+     *
+     * @param prefix the common prefix of all returned strings
+     * @return iterator over the strings starting with the prefix
+     */
+    public Iterator<String> iteratorWithPrefix(@NotNull String prefix) {
+        var lastNode = root.moveWithoutAdd(prefix);
+        if (lastNode.depth != prefix.length()) {
+            return Collections.emptyIterator();
+        }
+        return new PrefixIterator(lastNode, prefix);
+    }
+
+    /**
+     * Returns a lazy sequential stream of the strings of this trie starting with the given prefix
+     * in lexicographic order. The trie must not be modified while the stream is used
+     *
+     * @param prefix the common prefix of all returned strings
+     * @return stream of the strings starting with the prefix
+     */
+    public Stream<String> wordsWithPrefix(@NotNull String prefix) {
+        var spliterator = Spliterators.spliterator(iteratorWithPrefix(prefix), howManyStartsWithPrefix(prefix),
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Returns at most {@code limit} strings starting with the given prefix which have the greatest weights,
+     * in descending order of weights. Every node knows the greatest weight in its subtree, so the search visits
+     * only the nodes on the paths to the returned strings and their children. Order of strings with equal weights
+     * is not specified
+     *
+     * @param prefix the common prefix of all returned strings
+     * @param limit  maximal number of returned strings
+     * @return list of the heaviest strings starting with the prefix
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public List<String> autocomplete(@NotNull String prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must be non-negative");
+        }
+        var result = new ArrayList<String>();
+        var lastNode = root.moveWithoutAdd(prefix);
+        if (lastNode.depth != prefix.length() || lastNode.terminalsInSubtree == 0) {
+            return result;
+        }
+        var queue = new PriorityQueue<Candidate>();
+        queue.add(new Candidate(lastNode, lastNode.bestWeight, false));
+        while (!queue.isEmpty() && result.size() < limit) {
+            var candidate = queue.poll();
+            var node = candidate.node;
+            if (candidate.isWord) {
+                result.add(node.getWord());
+                continue;
+            }
+            if (node.isTerminal) {
+                queue.add(new Candidate(node, node.weight, true));
+            }
+            var children = node.children;
+            for (int cursor = children.first(); cursor != -1; cursor = children.next(cursor)) {
+                var child = children.valueAt(cursor);
+                queue.add(new Candidate(child, child.bestWeight, false));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all strings of this trie whose Levenshtein distance to the query is at most the given one,
+     * in lexicographic order. The trie is walked once in depth-first order computing a row of the edit distance
+     * table for every visited node from the row of its parent, only the cells not farther than the distance
+     * from the diagonal are computed. A subtree is skipped as soon as all cells of the row of its root exceed
+     * the distance, so the walk visits only the nodes which are prefixes of close strings
+     *
+     * @param query       the string to look for
+     * @param maxDistance maximal number of insertions, deletions and substitutions
+     * @return list of the strings close to the query
+     * @throws IllegalArgumentException if the distance is negative
+     */
+    public List<String> fuzzySearch(@NotNull String query, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Distance must be non-negative");
+        }
+        var result = new ArrayList<String>();
+        int length = query.length();
+        var rows = new int[16][];
+        rows[0] = new int[length + 1];
+        for (int i = 0; i <= length; i++) {
+            rows[0][i] = Math.min(i, maxDistance + 1);
+        }
+        if (root.isTerminal && rows[0][length] <= maxDistance) {
+            result.add("");
+        }
+        var nodes = new TrieNode[16];
+        var cursors = new int[16];
+        var word = new StringBuilder();
+        nodes[0] = root;
+        cursors[0] = root.children.first();
+        int top = 0;
+        while (top >= 0) {
+            var node = nodes[top];
+            int cursor = cursors[top];
+            if (cursor == -1) {
+                nodes[top--] = null;
+                word.setLength(Math.max(top, 0));
+                continue;
+            }
+            cursors[top] = node.children.next(cursor);
+            int depth = top + 1;
+            if (depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * depth);
+                cursors = Arrays.copyOf(cursors, 2 * depth);
+                rows = Arrays.copyOf(rows, 2 * depth);
+            }
+            if (rows[depth] == null) {
+                rows[depth] = new int[length + 1];
+            }
+            char label = node.children.keyAt(cursor);
+            if (nextDistanceRow(rows[top], rows[depth], depth, query, label, maxDistance) > maxDistance) {
+                continue;
+            }
+            var child = node.children.valueAt(cursor);
+            if (child.terminalsInSubtree == 0) {
+                continue;
+            }
+            word.append(label);
+            if (child.isTerminal && length - depth <= maxDistance && rows[depth][length] <= maxDistance) {
+                result.add(word.toString());
+            }
+            nodes[depth] = child;
+            cursors[depth] = child.children.first();
+            top = depth;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the row of the edit distance table for the prefix of the given depth ending with the label from
+     * the row of the prefix without the label. Distances greater than the maximal one are replaced by
+     * the maximal distance plus one, cells after the first one beyond the band are left as they are.
+     * Returns the minimal distance in the row
+     **/
+    private static int nextDistanceRow(int[] previous, int[] row, int depth, @NotNull String query, char label,
+                                       int maxDistance) {
+        int unreachable = maxDistance + 1;
+        int length = query.length();
+        int from = Math.max(1, depth - maxDistance);
+        int to = (int) Math.min(length, (long) depth + maxDistance);
+        row[0] = Math.min(depth, unreachable);
+        if (from > 1 && from - 1 <= length) {
+            row[from - 1] = unreachable;
+        }
+        if (to < length) {
+            row[to + 1] = unreachable;
+        }
+        int best = row[0];
+        for (int i = from; i <= to; i++) {
+            int distance = Math.min(previous[i], row[i - 1]) + 1;
+            distance = Math.min(distance, previous[i - 1] + (query.charAt(i - 1) == label ? 0 : 1));
+            row[i] = Math.min(distance, unreachable);
+            best = Math.min(best, row[i]);
+        }
+        return best;
+    }
+
+    /**
+     * Writes this trie as a byte sequence. The format starts with a header containing the magic bytes
+     * {@code TRIE}, the version of the format, the number of nodes and the length of the rest of the data.
+     * The reader uses the number of nodes and the length only to check the integrity of the data and to stop
+     * at the end of the trie, nothing is presized by them. Then the nodes follow in depth-first order, every node
+     * is written as the label of the edge to it, the number of children with the flags of being terminal
+     * and having non-zero weight, and the weight if any. All numbers are written in variable-length encoding
      *
      * @param out <code>OutputStream</code> to write trie to
      * @throws IOException if an I/O error occurs
      */
     @Override
     public void serialize(@NotNull OutputStream out) throws IOException {
-        var dataOut = new DataOutputStream(out);
-        root.serializeSubtree(dataOut);
-        dataOut.flush();
+        long[] sizes = new long[2];
+        root.forEachInPreorder(node -> {
+            sizes[0]++;
+            sizes[1] += node.encodedLength();
+        });
+        var output = new VarIntOutput(out);
+        for (byte b : FORMAT_MAGIC) {
+            output.writeByte(b);
+        }
+        output.writeVarLong(FORMAT_VERSION);
+        output.writeVarLong(sizes[0]);
+        output.writeVarLong(sizes[1]);
+        root.forEachInPreorder(node -> node.writeRecord(output));
+        output.flush();
     }
 
     /**
      * Reads a trie from the given <code>InputStream</code>. Any data which the trie contained earlier, is discarded.
+     * Both the current format and the format of the first version, which has no header, are accepted.
+     * Nothing is read from the stream after the end of the trie
      *
      * @param in <code>InputStream</code> to read from
-     * @throws IOException if an I/O error occurs
+     * @throws IOException if an I/O error occurs or the data is corrupted
      */
     @Override
     public void deserialize(@NotNull InputStream in) throws IOException {
-        var dataIn = new DataInputStream(in);
-        root = new TrieNode();
-        root.deserializeSubtree(dataIn);
+        int first = in.read();
+        if (first < 0) {
+            throw new EOFException("Unexpected end of stream");
+        }
+        if (first != FORMAT_MAGIC[0]) {
+            var pushbackIn = new PushbackInputStream(in, 1);
+            pushbackIn.unread(first);
+            var newRoot = new TrieNode();
+            newRoot.deserializeSubtree(new DataInputStream(pushbackIn));
+            root = newRoot;
+            return;
+        }
+        for (int i = 1; i < FORMAT_MAGIC.length; i++) {
+            if (in.read() != FORMAT_MAGIC[i]) {
+                throw new IOException("Unknown format");
+            }
+        }
+        long version = VarIntInput.readVarLong(in);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported version of the format: " + version);
+        }
+        long nodeCount = VarIntInput.readVarLong(in);
+        long length = VarIntInput.readVarLong(in);
+        root = readNodes(new VarIntInput(in, length), nodeCount);
     }
 
-    private class TrieNode {
+    /**
+     * Reads nodes written in depth-first order keeping the path to the current node in arrays. The arrays grow
+     * with the depth of the trie, the number of nodes from the header is only compared with the number of read nodes
+     **/
+    private static TrieNode readNodes(@NotNull VarIntInput input, long nodeCount) throws IOException {
+        var root = new TrieNode();
+        var nodes = new TrieNode[16];
+        var remainingChildren = new int[16];
+        int top = 0;
+        nodes[0] = root;
+        remainingChildren[0] = root.readRecord(input);
+        long readNodes = 1;
+        while (top >= 0) {
+            var node = nodes[top];
+            if (remainingChildren[top] == 0) {
+                node.computeSubtreeData();
+                if (node.terminalsInSubtree == 0 && node != root) {
+                    throw new IOException("Corrupted data");
+                }
+                nodes[top--] = null;
+                continue;
+            }
+            remainingChildren[top]--;
+            char label = (char) input.readVarInt(Character.MAX_VALUE);
+            if (node.children.get(label) != null || ++readNodes > nodeCount) {
+                throw new IOException("Corrupted data");
+            }
+            var child = new TrieNode(node.depth + 1, node, label);
+            node.children = node.children.put(label, child);
+            if (++top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * top);
+                remainingChildren = Arrays.copyOf(remainingChildren, 2 * top);
+            }
+            nodes[top] = child;
+            remainingChildren[top] = child.readRecord(input);
+        }
+        if (readNodes != nodeCount || !input.isFinished()) {
+            throw new IOException("Corrupted data");
+        }
+        return root;
+    }
+
+    /** Returns the root of this trie, it is used to build other representations of the trie **/
+    TrieNode getRoot() {
+        return root;
+    }
+
+    static class TrieNode {
         private boolean isTerminal;
         private int depth;
         private int terminalsInSubtree;
-        private HashMap<Character, TrieNode> childrenNodes;
+        private ChildMap<TrieNode> children;
         private @Nullable TrieNode parent;
         private char lastOnPath;
+        private long weight;
+        private long bestWeight = Long.MIN_VALUE;
 
         private TrieNode() {
             this(0, null, '\0');
@@ -155,40 +597,121 @@ public class Trie implements Serializable {
             this.depth = depth;
             this.parent = parent;
             this.lastOnPath = lastOnPath;
-            childrenNodes = new HashMap<>();
+            children = ChildMap.empty();
             terminalsInSubtree = 0;
             isTerminal = false;
         }
 
-        private boolean hasNext(char c) {
-            return childrenNodes.containsKey(c);
+        boolean isTerminal() {
+            return isTerminal;
+        }
+
+        int getTerminalsInSubtree() {
+            return terminalsInSubtree;
+        }
+
+        ChildMap<TrieNode> getChildren() {
+            return children;
         }
 
         private TrieNode getNext(char c) {
-            if (!hasNext(c)) {
-                childrenNodes.put(c, new TrieNode(depth + 1, this, c));
+            var next = children.get(c);
+            if (next == null) {
+                next = new TrieNode(depth + 1, this, c);
+                children = children.put(c, next);
             }
-            return childrenNodes.get(c);
+            return next;
         }
 
         private TrieNode moveWithAdd(@NotNull String element) {
             var currentNode = this;
-            for (char c : element.toCharArray()) {
-                currentNode = currentNode.getNext(c);
+            for (int i = 0; i < element.length(); i++) {
+                currentNode = currentNode.getNext(element.charAt(i));
             }
             return currentNode;
         }
 
         private TrieNode moveWithoutAdd(@NotNull String element) {
             var curNode = this;
-            for (char c : element.toCharArray()) {
-                if (!curNode.hasNext(c))
+            for (int i = 0; i < element.length(); i++) {
+                var next = curNode.children.get(element.charAt(i));
+                if (next == null)
                     break;
-                curNode = curNode.getNext(c);
+                curNode = next;
             }
             return curNode;
         }
 
+        /** Adds the subtree of the node to the children of this node, the node must be one level deeper **/
+        private void attach(@NotNull TrieNode child) {
+            child.parent = this;
+            children = children.put(child.lastOnPath, child);
+        }
+
+        /** Makes this node terminal if the other node is, keeping the weight if this node is already terminal **/
+        private void mergeFlags(@NotNull TrieNode other) {
+            if (other.isTerminal && !isTerminal) {
+                isTerminal = true;
+                weight = other.weight;
+            }
+        }
+
+        /**
+         * Moves the strings of the subtree of the other node of the same depth to the subtree of this node.
+         * Subtrees which only the other node has are attached as they are, the data of the other nodes is recomputed
+         * after their children. The data of the ancestors of this node is not updated
+         **/
+        private void mergeSubtree(@NotNull TrieNode other) {
+            var stack = new ArrayList<TrieNode>();
+            var merged = new ArrayList<TrieNode>();
+            stack.add(this);
+            stack.add(other);
+            while (!stack.isEmpty()) {
+                var source = stack.remove(stack.size() - 1);
+                var target = stack.remove(stack.size() - 1);
+                merged.add(target);
+                target.mergeFlags(source);
+                var sourceChildren = source.children;
+                for (int cursor = sourceChildren.first(); cursor != -1; cursor = sourceChildren.next(cursor)) {
+                    var sourceChild = sourceChildren.valueAt(cursor);
+                    var targetChild = target.children.get(sourceChildren.keyAt(cursor));
+                    if (targetChild == null) {
+                        target.attach(sourceChild);
+                    } else {
+                        stack.add(targetChild);
+                        stack.add(sourceChild);
+                    }
+                }
+            }
+            for (int i = merged.size() - 1; i >= 0; i--) {
+                merged.get(i).computeSubtreeData();
+            }
+        }
+
+        /** Returns the string on the path from the root to this node **/
+        private String getWord() {
+            var word = new char[depth];
+            for (var node = this; node.parent != null; node = node.parent) {
+                word[node.depth - 1] = node.lastOnPath;
+            }
+            return new String(word);
+        }
+
+        /** Recomputes the greatest weight in the subtrees of this node and its ancestors while it changes **/
+        private void updateBestWeights() {
+            for (var node = this; node != null; node = node.parent) {
+                long best = node.isTerminal ? node.weight : Long.MIN_VALUE;
+                var nodeChildren = node.children;
+                for (int cursor = nodeChildren.first(); cursor != -1; cursor = nodeChildren.next(cursor)) {
+                    best = Math.max(best, nodeChildren.valueAt(cursor).bestWeight);
+                }
+                if (best == node.bestWeight && node != this) {
+                    return;
+                }
+                node.bestWeight = best;
+            }
+        }
+
         private void makeNotTerminal() {
             isTerminal = false;
             terminalsInSubtree--;
@@ -199,12 +722,13 @@ public class Trie implements Serializable {
                 parentNode.terminalsInSubtree--;
 
                 if (node.terminalsInSubtree == 0) {
-                    parentNode.childrenNodes.remove(node.lastOnPath);
+                    parentNode.children = parentNode.children.remove(node.lastOnPath);
                 }
 
                 node = node.parent;
                 parentNode = node.parent;
             }
+            updateBestWeights();
         }
 
         private void makeTerminal() {
@@ -215,21 +739,90 @@ public class Trie implements Serializable {
                 node.terminalsInSubtree++;
                 node = node.parent;
             }
+            updateBestWeights();
+        }
+
+        /** Calls the action for every node of the subtree in depth-first order with children in label order **/
+        private void forEachInPreorder(@NotNull NodeAction action) throws IOException {
+            var nodes = new TrieNode[16];
+            var cursors = new int[16];
+            int top = 0;
+            nodes[0] = this;
+            cursors[0] = children.first();
+            action.accept(this);
+            while (top >= 0) {
+                var node = nodes[top];
+                int cursor = cursors[top];
+                if (cursor == -1) {
+                    nodes[top--] = null;
+                    continue;
+                }
+                cursors[top] = node.children.next(cursor);
+                var child = node.children.valueAt(cursor);
+                action.accept(child);
+                if (++top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * top);
+                    cursors = Arrays.copyOf(cursors, 2 * top);
+                }
+                nodes[top] = child;
+                cursors[top] = child.children.first();
+            }
+        }
+
+        private long recordHeader() {
+            long header = (long) children.size() << 2;
+            if (isTerminal) {
+                header |= weight != 0 ? 3 : 1;
+            }
+            return header;
         }
 
-        private void serializeSubtree(@NotNull DataOutputStream out) throws IOException {
-            out.writeBoolean(isTerminal);
-            out.writeInt(terminalsInSubtree);
-            out.writeInt(depth);
-            out.writeChar(lastOnPath);
-            out.writeInt(childrenNodes.size());
+        private int encodedLength() {
+            int length = VarIntOutput.length(recordHeader());
+            if (parent != null) {
+                length += VarIntOutput.length(lastOnPath);
+            }
+            if (isTerminal && weight != 0) {
+                length += VarIntOutput.length(VarIntOutput.zigzag(weight));
+            }
+            return length;
+        }
+
+        private void writeRecord(@NotNull VarIntOutput out) throws IOException {
+            if (parent != null) {
+                out.writeVarLong(lastOnPath);
+            }
+            out.writeVarLong(recordHeader());
+            if (isTerminal && weight != 0) {
+                out.writeSignedVarLong(weight);
+            }
+        }
+
+        /** Reads the flags and the weight of this node and returns the number of its children **/
+        private int readRecord(@NotNull VarIntInput in) throws IOException {
+            long header = in.readVarLong();
+            isTerminal = (header & 1) != 0;
+            if ((header & 2) != 0) {
+                weight = in.readSignedVarLong();
+            }
+            if (header >>> 2 > MAX_CHILDREN) {
+                throw new IOException("Corrupted data");
+            }
+            return (int) (header >>> 2);
+        }
 
-            for (var entry : childrenNodes.entrySet()) {
-                out.writeChar(entry.getKey());
-                entry.getValue().serializeSubtree(out);
+        /** Computes the number of strings and the greatest weight in the subtree from the children **/
+        private void computeSubtreeData() {
+            terminalsInSubtree = isTerminal ? 1 : 0;
+            bestWeight = isTerminal ? weight : Long.MIN_VALUE;
+            for (int cursor = children.first(); cursor != -1; cursor = children.next(cursor)) {
+                var child = children.valueAt(cursor);
+                terminalsInSubtree += child.terminalsInSubtree;
+                bestWeight = Math.max(bestWeight, child.bestWeight);
             }
         }
 
+        /** Reads a subtree in the format of the first version **/
         private void deserializeSubtree(@NotNull DataInputStream in) throws IOException {
             isTerminal = in.readBoolean();
             terminalsInSubtree = in.readInt();
@@ -242,9 +835,13 @@ public class Trie implements Serializable {
 
                 child.deserializeSubtree(in);
 
-                childrenNodes.put(edgeSymbol, child);
+                children = children.put(edgeSymbol, child);
                 child.parent = this;
             }
+            bestWeight = isTerminal ? 0 : Long.MIN_VALUE;
+            for (int cursor = children.first(); cursor != -1; cursor = children.next(cursor)) {
+                bestWeight = Math.max(bestWeight, children.valueAt(cursor).bestWeight);
+            }
         }
 
         @Override
@@ -260,12 +857,134 @@ public class Trie implements Serializable {
                     depth == trieNode.depth &&
                     terminalsInSubtree == trieNode.terminalsInSubtree &&
                     lastOnPath == trieNode.lastOnPath &&
-                    Objects.equals(childrenNodes, trieNode.childrenNodes);
+                    Objects.equals(children, trieNode.children);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(isTerminal, depth, terminalsInSubtree, childrenNodes, lastOnPath);
+            return Objects.hash(isTerminal, depth, terminalsInSubtree, children, lastOnPath);
+        }
+    }
+
+    /** Depth-first iterator over the subtree of a node which keeps the path in arrays instead of the call stack **/
+    private static class PrefixIterator implements Iterator<String> {
+        private static final int NOT_VISITED = -2;
+
+        private final StringBuilder word;
+        private TrieNode[] nodes = new TrieNode[16];
+        private int[] cursors = new int[16];
+        private int top;
+        private @Nullable String next;
+
+        private PrefixIterator(@NotNull TrieNode start, @NotNull String prefix) {
+            word = new StringBuilder(prefix);
+            nodes[0] = start;
+            cursors[0] = NOT_VISITED;
+            next = findNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            var result = next;
+            next = findNext();
+            return result;
+        }
+
+        private @Nullable String findNext() {
+            while (top >= 0) {
+                var node = nodes[top];
+                int cursor = cursors[top];
+                if (cursor == NOT_VISITED) {
+                    cursors[top] = node.children.first();
+                    if (node.isTerminal) {
+                        return word.toString();
+                    }
+                } else if (cursor == -1) {
+                    nodes[top--] = null;
+                    if (top >= 0) {
+                        word.setLength(word.length() - 1);
+                    }
+                } else {
+                    cursors[top] = node.children.next(cursor);
+                    word.append(node.children.keyAt(cursor));
+                    push(node.children.valueAt(cursor));
+                }
+            }
+            return null;
+        }
+
+        private void push(@NotNull TrieNode node) {
+            if (++top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * top);
+                cursors = Arrays.copyOf(cursors, 2 * top);
+            }
+            nodes[top] = node;
+            cursors[top] = NOT_VISITED;
+        }
+    }
+
+    /** Builds tries of a range of shards and merges them **/
+    @SuppressWarnings("serial")
+    private static class BuildTask extends RecursiveTask<Trie> {
+        private final List<? extends Collection<String>> shards;
+        private final int from;
+        private final int to;
+
+        private BuildTask(@NotNull List<? extends Collection<String>> shards, int from, int to) {
+            this.shards = shards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Trie compute() {
+            if (to - from == 1) {
+                var trie = new Trie();
+                for (var element : shards.get(from)) {
+                    trie.add(element);
+                }
+                return trie;
+            }
+            int middle = (from + to) >>> 1;
+            var left = new BuildTask(shards, from, middle);
+            var right = new BuildTask(shards, middle, to);
+            invokeAll(left, right);
+            var trie = left.join();
+            trie.mergeInParallel(right.join());
+            return trie;
+        }
+    }
+
+    private interface NodeAction {
+        void accept(@NotNull TrieNode node) throws IOException;
+    }
+
+    /** Node or string ending in it in the queue of autocompletion, heavier candidates go first **/
+    private static class Candidate implements Comparable<Candidate> {
+        private final TrieNode node;
+        private final long weight;
+        private final boolean isWord;
+
+        private Candidate(@NotNull TrieNode node, long weight, boolean isWord) {
+            this.node = node;
+            this.weight = weight;
+            this.isWord = isWord;
+        }
+
+        @Override
+        public int compareTo(@NotNull Candidate other) {
+            if (weight != other.weight) {
+                return Long.compare(other.weight, weight);
+            }
+            return Boolean.compare(other.isWord, isWord);
         }
     }
 }
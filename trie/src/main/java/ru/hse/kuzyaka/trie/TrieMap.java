@@ -0,0 +1,323 @@
+package ru.hse.kuzyaka.trie;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Map from strings to values with prefix operations. Nodes are the nodes of {@link Trie} with the same child maps
+ * and counters of keys in subtrees, but a node does not keep a value itself, it keeps the index of the slot
+ * of the value in a shared array, so a node takes the same memory whether it has a value or not. Slots of removed
+ * values are reused. Subtrees removed by {@link #removePrefix(String)} leave their values in the array, they are
+ * dropped by compacting the array once such dead values outnumber the live ones, so a removed value may stay
+ * reachable until then, and the compaction takes amortized constant time per removed key.
+ *
+ * @param <V> type of values
+ */
+public class TrieMap<V> {
+    private static final int NO_SLOT = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private MapNode root = new MapNode(null, '\0');
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int usedSlots;
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotCount;
+    private int deadSlots;
+
+    /**
+     * Returns the number of keys in this map
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return root.terminalsInSubtree;
+    }
+
+    /**
+     * Checks if the given key is in this map
+     *
+     * @param key the key which is looked for
+     * @return <code>true</code> if the map contains this key; <code>false</code> otherwise
+     */
+    public boolean containsKey(@NotNull String key) {
+        var node = find(key);
+        return node != null && node.slot != NO_SLOT;
+    }
+
+    /**
+     * Returns the value of the given key
+     *
+     * @param key the key whose value is returned
+     * @return the value of the key or <code>null</code> if there is no such key
+     */
+    public @Nullable V get(@NotNull String key) {
+        var node = find(key);
+        return node == null ? null : valueOf(node);
+    }
+
+    /**
+     * Associates the value with the given key replacing the previous value if any
+     *
+     * @param key   the key with which the value is associated
+     * @param value the value, must not be <code>null</code>
+     * @return the previous value of the key or <code>null</code> if there was no such key
+     */
+    public @Nullable V put(@NotNull String key, @NotNull V value) {
+        Objects.requireNonNull(value);
+        var node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getNext(key.charAt(i));
+        }
+        if (node.slot != NO_SLOT) {
+            var previous = valueOf(node);
+            values[node.slot] = value;
+            return previous;
+        }
+        node.slot = allocateSlot();
+        values[node.slot] = value;
+        for (var current = node; current != null; current = current.parent) {
+            current.terminalsInSubtree++;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given key with its value from this map
+     *
+     * @param key the key which is removed
+     * @return the value of the key or <code>null</code> if there was no such key
+     */
+    public @Nullable V remove(@NotNull String key) {
+        var node = find(key);
+        if (node == null || node.slot == NO_SLOT) {
+            return null;
+        }
+        var previous = valueOf(node);
+        values[node.slot] = null;
+        freeSlots[freeSlotCount++] = node.slot;
+        node.slot = NO_SLOT;
+        removeFromAncestors(node, 1);
+        return previous;
+    }
+
+    /**
+     * Tells how many keys in this map start with the given prefix
+     *
+     * @param prefix the common prefix of all counted keys
+     * @return the number of keys in this map starting with the prefix
+     */
+    public int howManyStartsWithPrefix(@NotNull String prefix) {
+        var node = find(prefix);
+        return node == null ? 0 : node.terminalsInSubtree;
+    }
+
+    /**
+     * Calls the action for every key starting with the given prefix and its value in lexicographic order of keys.
+     * The map must not be modified by the action
+     *
+     * @param prefix the common prefix of the keys
+     * @param action action which is called for keys and values
+     */
+    public void forEachWithPrefix(@NotNull String prefix, @NotNull BiConsumer<? super String, ? super V> action) {
+        var start = find(prefix);
+        if (start == null) {
+            return;
+        }
+        var key = new StringBuilder(prefix);
+        var nodes = new MapNode[16];
+        var cursors = new int[16];
+        int top = 0;
+        nodes[0] = start;
+        cursors[0] = start.children.first();
+        if (start.slot != NO_SLOT) {
+            action.accept(prefix, valueOf(start));
+        }
+        while (top >= 0) {
+            var node = nodes[top];
+            int cursor = cursors[top];
+            if (cursor == -1) {
+                nodes[top--] = null;
+                key.setLength(prefix.length() + Math.max(top, 0));
+                continue;
+            }
+            cursors[top] = node.children.next(cursor);
+            var child = node.children.valueAt(cursor);
+            key.append(node.children.keyAt(cursor));
+            if (child.slot != NO_SLOT) {
+                action.accept(key.toString(), valueOf(child));
+            }
+            if (++top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * top);
+                cursors = Arrays.copyOf(cursors, 2 * top);
+            }
+            nodes[top] = child;
+            cursors[top] = child.children.first();
+        }
+    }
+
+    /**
+     * Removes all keys starting with the given prefix. The subtree of the prefix is detached at once,
+     * only the counters of the nodes on the path to the prefix are updated, so the removal takes time
+     * proportional to the length of the prefix regardless of the number of removed keys, apart from
+     * the amortized cost of compacting the values
+     *
+     * @param prefix the common prefix of the removed keys
+     * @return the number of removed keys
+     */
+    public int removePrefix(@NotNull String prefix) {
+        var node = find(prefix);
+        if (node == null || node.terminalsInSubtree == 0) {
+            return 0;
+        }
+        int removed = node.terminalsInSubtree;
+        if (node == root) {
+            clear();
+            return removed;
+        }
+        removeFromAncestors(node, removed);
+        deadSlots += removed;
+        if (deadSlots > size()) {
+            compactValues();
+        }
+        return removed;
+    }
+
+    /**
+     * Finds the longest key which is a prefix of the given string, like the route for an address
+     * in a routing table
+     *
+     * @param query the string whose prefixes are looked for
+     * @return the longest key which is a prefix of the query with its value;
+     * <code>null</code> if there is no such key
+     */
+    public @Nullable Map.Entry<String, V> longestPrefixMatch(@NotNull String query) {
+        var node = root;
+        int length = root.slot != NO_SLOT ? 0 : -1;
+        var match = root;
+        for (int i = 0; i < query.length(); i++) {
+            node = node.children.get(query.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.slot != NO_SLOT) {
+                length = i + 1;
+                match = node;
+            }
+        }
+        if (length == -1) {
+            return null;
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(query.substring(0, length), valueOf(match));
+    }
+
+    /**
+     * Removes all keys from this map
+     */
+    public void clear() {
+        root = new MapNode(null, '\0');
+        values = new Object[INITIAL_CAPACITY];
+        freeSlots = new int[INITIAL_CAPACITY];
+        usedSlots = 0;
+        freeSlotCount = 0;
+        deadSlots = 0;
+    }
+
+    private @Nullable MapNode find(@NotNull String path) {
+        var node = root;
+        for (int i = 0; i < path.length() && node != null; i++) {
+            node = node.children.get(path.charAt(i));
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable V valueOf(@NotNull MapNode node) {
+        return node.slot == NO_SLOT ? null : (V) values[node.slot];
+    }
+
+    /**
+     * Subtracts the number of removed keys from the counters of the node and its ancestors
+     * and detaches the ancestors which have no keys left
+     **/
+    private void removeFromAncestors(@NotNull MapNode node, int removed) {
+        for (var current = node; current != null; current = current.parent) {
+            current.terminalsInSubtree -= removed;
+        }
+        MapNode highestEmpty = null;
+        for (var current = node; current != root && current.terminalsInSubtree == 0; current = current.parent) {
+            highestEmpty = current;
+        }
+        if (highestEmpty != null) {
+            var parent = Objects.requireNonNull(highestEmpty.parent);
+            parent.children = parent.children.remove(highestEmpty.lastOnPath);
+        }
+    }
+
+    /** Returns a free slot for a value, growing the array if it is full **/
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (usedSlots == values.length) {
+            values = Arrays.copyOf(values, 2 * values.length);
+            freeSlots = Arrays.copyOf(freeSlots, values.length);
+        }
+        return usedSlots++;
+    }
+
+    /** Moves the values of the keys to the beginning of the array dropping the values of removed subtrees **/
+    private void compactValues() {
+        var compacted = new Object[values.length];
+        int count = 0;
+        var nodes = new MapNode[16];
+        nodes[0] = root;
+        int top = 0;
+        while (top >= 0) {
+            var node = nodes[top];
+            nodes[top--] = null;
+            if (node.slot != NO_SLOT) {
+                compacted[count] = values[node.slot];
+                node.slot = count++;
+            }
+            var children = node.children;
+            for (int cursor = children.first(); cursor != -1; cursor = children.next(cursor)) {
+                if (++top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * top);
+                }
+                nodes[top] = children.valueAt(cursor);
+            }
+        }
+        values = compacted;
+        usedSlots = count;
+        freeSlotCount = 0;
+        deadSlots = 0;
+    }
+
+    private static class MapNode {
+        private final @Nullable MapNode parent;
+        private final char lastOnPath;
+        private ChildMap<MapNode> children = ChildMap.empty();
+        private int terminalsInSubtree;
+        private int slot = NO_SLOT;
+
+        private MapNode(@Nullable MapNode parent, char lastOnPath) {
+            this.parent = parent;
+            this.lastOnPath = lastOnPath;
+        }
+
+        private MapNode getNext(char c) {
+            var next = children.get(c);
+            if (next == null) {
+                next = new MapNode(this, c);
+                children = children.put(c, next);
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.hse.kuzyaka.trie;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Buffered reader of numbers written by {@link VarIntOutput}. It never reads more than the given number of bytes
+ * from the underlying stream, so the data following them stays in the stream.
+ */
+class VarIntInput {
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private long remaining;
+    private int position;
+    private int limit;
+
+    VarIntInput(@NotNull InputStream in, long length) {
+        this.in = in;
+        remaining = length;
+    }
+
+    /** Reads a number from the stream without buffering **/
+    static long readVarLong(@NotNull InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int current = in.read();
+            if (current < 0) {
+                throw new EOFException("Unexpected end of stream");
+            }
+            value |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    int readByte() throws IOException {
+        if (position == limit) {
+            fillBuffer();
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int current = readByte();
+            value |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+
+    /** Reads a number which must fit in the given bound **/
+    int readVarInt(int bound) throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > bound) {
+            throw new IOException("Number " + value + " is out of range");
+        }
+        return (int) value;
+    }
+
+    long readSignedVarLong() throws IOException {
+        return unzigzag(readVarLong());
+    }
+
+    /** Tells if all the bytes were read **/
+    boolean isFinished() {
+        return position == limit && remaining == 0;
+    }
+
+    private void fillBuffer() throws IOException {
+        if (remaining == 0) {
+            throw new EOFException("Unexpected end of data");
+        }
+        int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (read < 0) {
+            throw new EOFException("Unexpected end of stream");
+        }
+        remaining -= read;
+        position = 0;
+        limit = read;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.hse.kuzyaka.trie;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered writer of numbers in variable-length encoding: every byte holds seven bits of the number starting
+ * from the lowest ones, and the highest bit tells if more bytes follow. Signed numbers are zigzag-encoded first,
+ * so numbers close to zero take few bytes. The underlying stream is flushed but not closed.
+ */
+class VarIntOutput {
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    VarIntOutput(@NotNull OutputStream out) {
+        this.out = out;
+    }
+
+    /** Returns the number of bytes which the encoding of the given non-negative number takes **/
+    static int length(long value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    void writeByte(int value) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /** Writes the number treating it as unsigned **/
+    void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    void writeSignedVarLong(long value) throws IOException {
+        writeVarLong(zigzag(value));
+    }
+
+    void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
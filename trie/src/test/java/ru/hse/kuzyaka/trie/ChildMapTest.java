@@ -0,0 +1,81 @@
+package ru.hse.kuzyaka.trie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChildMapTest {
+    @Test
+    void empty() {
+        var map = ChildMap.<String>empty();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.first());
+        assertNull(map.get('a'));
+        assertSame(map, map.remove('a'));
+    }
+
+    @Test
+    void putAndReplace() {
+        var map = ChildMap.<String>empty().put('b', "b");
+        map = map.put('a', "a");
+        assertSame(map, map.put('a', "A"));
+        assertEquals("A", map.get('a'));
+        assertEquals("b", map.get('b'));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void denseKeys() {
+        checkSameAsTreeMap('a', 26, 1);
+    }
+
+    @Test
+    void sparseKeys() {
+        checkSameAsTreeMap('a', 60_000, 2);
+    }
+
+    @Test
+    void equalsIgnoresRepresentation() {
+        var dense = ChildMap.<String>empty();
+        for (char c = 'a'; c <= 'z'; c++) {
+            dense = dense.put(c, String.valueOf(c));
+        }
+        var sorted = ChildMap.<String>empty();
+        for (char c = 'a'; c <= 'c'; c++) {
+            sorted = sorted.put(c, String.valueOf(c));
+        }
+        for (char c = 'd'; c <= 'z'; c++) {
+            dense = dense.remove(c);
+        }
+        assertEquals(sorted, dense);
+        assertEquals(sorted.hashCode(), dense.hashCode());
+    }
+
+    private void checkSameAsTreeMap(char minKey, int range, long seed) {
+        var random = new Random(seed);
+        var map = ChildMap.<Integer>empty();
+        var expected = new TreeMap<Character, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            char key = (char) (minKey + random.nextInt(range));
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, i);
+                expected.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+        var keys = new ArrayList<Character>();
+        for (int cursor = map.first(); cursor != -1; cursor = map.next(cursor)) {
+            keys.add(map.keyAt(cursor));
+            assertEquals(expected.get(map.keyAt(cursor)), map.valueAt(cursor));
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.hse.kuzyaka.trie;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.hse.kuzyaka.trie.TrieTestUtils.*;
+
+class CompactTrieTest {
+    private Trie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new Trie();
+    }
+
+    @Test
+    void empty() {
+        var compactTrie = new CompactTrie(trie);
+        assertEquals(0, compactTrie.size());
+        assertEquals(1, compactTrie.nodeCount());
+        assertFalse(compactTrie.contains(""));
+        assertFalse(compactTrie.contains("a"));
+        assertEquals(0, compactTrie.howManyStartsWithPrefix(""));
+    }
+
+    @Test
+    void containsEmpty() {
+        trie.add("");
+        assertTrue(new CompactTrie(trie).contains(""));
+    }
+
+    @Test
+    void howManyStartsWithPrefix() {
+        String[] words = {"a", "abacaba", "abcabc", "bc", "abcbac", "adbcc", "abac", "acc"};
+        for (String word : words) {
+            trie.add(word);
+        }
+        var compactTrie = new CompactTrie(trie);
+        assertEquals(8, compactTrie.size());
+        assertEquals(7, compactTrie.howManyStartsWithPrefix("a"));
+        assertEquals(0, compactTrie.howManyStartsWithPrefix("c"));
+        assertEquals(2, compactTrie.howManyStartsWithPrefix("aba"));
+        assertEquals(1, compactTrie.howManyStartsWithPrefix("abacaba"));
+        assertEquals(0, compactTrie.howManyStartsWithPrefix("abacabaa"));
+        assertEquals(4, compactTrie.howManyStartsWithPrefix("ab"));
+        assertTrue(compactTrie.contains("abac"));
+        assertFalse(compactTrie.contains("aba"));
+    }
+
+    @Test
+    void sameAsTrie() {
+        var random = new Random(0);
+        for (int i = 0; i < 10_000; i++) {
+            trie.add(randomWord(random, 6));
+        }
+        trie.remove(randomWord(random, 6));
+        var compactTrie = new CompactTrie(trie);
+        assertEquals(trie.size(), compactTrie.size());
+        assertSameAnswers(trie, compactTrie::contains, compactTrie::howManyStartsWithPrefix, random, 6);
+    }
+}
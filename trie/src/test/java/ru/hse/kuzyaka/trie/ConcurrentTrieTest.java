@@ -0,0 +1,120 @@
+package ru.hse.kuzyaka.trie;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTrieTest {
+    private static final int THREADS = 8;
+
+    private ConcurrentTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new ConcurrentTrie();
+    }
+
+    @Test
+    void sequentialOperations() {
+        assertTrue(trie.add("abc"));
+        assertTrue(trie.add("ab"));
+        assertFalse(trie.add("abc"));
+        assertTrue(trie.add(""));
+        assertTrue(trie.contains("ab"));
+        assertFalse(trie.contains("a"));
+        assertEquals(2, trie.howManyStartsWithPrefix("a"));
+        assertEquals(0, trie.howManyStartsWithPrefix("abd"));
+        assertTrue(trie.remove("ab"));
+        assertFalse(trie.remove("ab"));
+        assertFalse(trie.remove("a"));
+        assertFalse(trie.contains("ab"));
+        assertEquals(2, trie.size());
+    }
+
+    @Test
+    void concurrentAddsOfSameStrings() throws InterruptedException {
+        var added = new AtomicInteger();
+        runInThreads(thread -> {
+            for (int i = 0; i < 10_000; i++) {
+                if (trie.add(String.valueOf(i))) {
+                    added.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(10_000, added.get());
+        assertEquals(10_000, trie.size());
+        assertEquals(1111, trie.howManyStartsWithPrefix("1"));
+    }
+
+    @Test
+    void concurrentAddsAndRemoves() throws InterruptedException {
+        runInThreads(thread -> {
+            for (int i = 0; i < 10_000; i++) {
+                trie.add(thread + "/" + i);
+            }
+            for (int i = 0; i < 10_000; i += 2) {
+                assertTrue(trie.remove(thread + "/" + i));
+            }
+        });
+        assertEquals(THREADS * 5000, trie.size());
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals(5000, trie.howManyStartsWithPrefix(thread + "/"));
+            assertTrue(trie.contains(thread + "/1"));
+            assertFalse(trie.contains(thread + "/2"));
+        }
+    }
+
+    @Test
+    void readersSeeAddedStrings() throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            trie.add("word" + i);
+        }
+        runInThreads(thread -> {
+            if (thread == 0) {
+                for (int i = 1000; i < 20_000; i++) {
+                    trie.add("word" + i);
+                }
+            } else {
+                for (int i = 0; i < 20_000; i++) {
+                    assertTrue(trie.contains("word" + i % 1000));
+                }
+            }
+        });
+        assertEquals(20_000, trie.size());
+    }
+
+    private void runInThreads(ThreadBody body) throws InterruptedException {
+        var start = new CountDownLatch(1);
+        var errors = new ArrayList<Throwable>();
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREADS; i++) {
+            int number = i;
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                    body.run(number);
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(new ArrayList<Throwable>(), errors);
+    }
+
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
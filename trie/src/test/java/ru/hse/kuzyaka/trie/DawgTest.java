@@ -0,0 +1,68 @@
+package ru.hse.kuzyaka.trie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.hse.kuzyaka.trie.TrieTestUtils.*;
+
+class DawgTest {
+    @Test
+    void empty() {
+        var dawg = Dawg.fromSorted(Stream.empty());
+        assertEquals(0, dawg.size());
+        assertEquals(1, dawg.nodeCount());
+        assertFalse(dawg.contains(""));
+        assertFalse(dawg.contains("a"));
+        assertEquals(0, dawg.howManyStartsWithPrefix(""));
+    }
+
+    @Test
+    void containsEmpty() {
+        var dawg = Dawg.fromSorted(Stream.of("", "a"));
+        assertTrue(dawg.contains(""));
+        assertTrue(dawg.contains("a"));
+        assertEquals(2, dawg.size());
+    }
+
+    @Test
+    void sharesSuffixes() {
+        var dawg = Dawg.fromSorted(Stream.of("tap", "taps", "top", "tops"));
+        assertEquals(5, dawg.nodeCount());
+        assertEquals(4, dawg.size());
+        assertEquals(2, dawg.howManyStartsWithPrefix("to"));
+        assertEquals(1, dawg.howManyStartsWithPrefix("taps"));
+        assertTrue(dawg.contains("top"));
+        assertFalse(dawg.contains("to"));
+        assertFalse(dawg.contains("tapss"));
+    }
+
+    @Test
+    void ignoresRepeatedStrings() {
+        var dawg = Dawg.fromSorted(Stream.of("a", "a", "ab", "ab", "b"));
+        assertEquals(3, dawg.size());
+        assertEquals(2, dawg.howManyStartsWithPrefix("a"));
+    }
+
+    @Test
+    void unsorted() {
+        assertThrows(IllegalArgumentException.class, () -> Dawg.fromSorted(Stream.of("a", "c", "b")));
+    }
+
+    @Test
+    void sameAsTrie() {
+        var random = new Random(0);
+        var words = new TreeSet<String>();
+        for (int i = 0; i < 10_000; i++) {
+            words.add(randomWord(random, 6));
+        }
+        var trie = Trie.fromSorted(words.stream());
+        var dawg = Dawg.fromSorted(words.stream());
+        assertEquals(trie.size(), dawg.size());
+        assertTrue(dawg.nodeCount() < new CompactTrie(trie).nodeCount());
+        assertSameAnswers(trie, dawg::contains, dawg::howManyStartsWithPrefix, random, 6);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.hse.kuzyaka.trie;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTrieTest {
+    private Trie trie;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        trie = new Trie();
+        file = Files.createTempFile("trie", ".bin");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Test
+    void empty() throws IOException {
+        var mappedTrie = map(trie);
+        assertEquals(0, mappedTrie.size());
+        assertEquals(1, mappedTrie.nodeCount());
+        assertFalse(mappedTrie.contains(""));
+        assertEquals(0, mappedTrie.howManyStartsWithPrefix("a"));
+    }
+
+    @Test
+    void howManyStartsWithPrefix() throws IOException {
+        String[] words = {"a", "abacaba", "abcabc", "bc", "abcbac", "adbcc", "abac", "acc"};
+        for (String word : words) {
+            trie.add(word);
+        }
+        var mappedTrie = map(trie);
+        assertEquals(8, mappedTrie.size());
+        assertEquals(7, mappedTrie.howManyStartsWithPrefix("a"));
+        assertEquals(0, mappedTrie.howManyStartsWithPrefix("c"));
+        assertEquals(2, mappedTrie.howManyStartsWithPrefix("aba"));
+        assertEquals(0, mappedTrie.howManyStartsWithPrefix("abacabaa"));
+        assertTrue(mappedTrie.contains("abac"));
+        assertFalse(mappedTrie.contains("aba"));
+    }
+
+    @Test
+    void sameAsTrie() throws IOException {
+        var random = new Random(0);
+        for (int i = 0; i < 20_000; i++) {
+            trie.add(Integer.toString(random.nextInt(1_000_000), 36) + (char) (1000 + random.nextInt(3)));
+        }
+        var mappedTrie = map(trie);
+        assertEquals(trie.size(), mappedTrie.size());
+        for (int i = 0; i < 20_000; i++) {
+            var word = Integer.toString(random.nextInt(1_000_000), 36) + (char) (1000 + random.nextInt(3));
+            assertEquals(trie.contains(word), mappedTrie.contains(word));
+            var prefix = word.substring(0, random.nextInt(word.length()));
+            assertEquals(trie.howManyStartsWithPrefix(prefix), mappedTrie.howManyStartsWithPrefix(prefix));
+        }
+    }
+
+    @Test
+    void wrongFormat() throws IOException {
+        Files.write(file, new byte[100]);
+        assertThrows(IOException.class, () -> new MappedTrie(file));
+        try (var out = Files.newOutputStream(file)) {
+            trie.add("abc");
+            new CompactTrie(trie).writeTo(out);
+            out.write(0);
+        }
+        assertThrows(IOException.class, () -> new MappedTrie(file));
+    }
+
+    private MappedTrie map(Trie trie) throws IOException {
+        try (var out = Files.newOutputStream(file)) {
+            new CompactTrie(trie).writeTo(out);
+        }
+        return new MappedTrie(file);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.hse.kuzyaka.trie;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.hse.kuzyaka.trie.TrieTestUtils.*;
+
+class RadixTrieTest {
+    private RadixTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new RadixTrie();
+    }
+
+    @Test
+    void addAndContains() {
+        assertTrue(trie.add("/users/list"));
+        assertTrue(trie.add("/users"));
+        assertTrue(trie.add("/user"));
+        assertFalse(trie.add("/users"));
+        assertTrue(trie.contains("/users"));
+        assertTrue(trie.contains("/user"));
+        assertFalse(trie.contains("/use"));
+        assertFalse(trie.contains("/users/"));
+        assertFalse(trie.contains("/users/lists"));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void containsEmpty() {
+        assertFalse(trie.contains(""));
+        assertTrue(trie.add(""));
+        assertTrue(trie.contains(""));
+        assertTrue(trie.remove(""));
+        assertFalse(trie.remove(""));
+    }
+
+    @Test
+    void chainTakesOneNode() {
+        trie.add("/api/v1/users/profile");
+        assertEquals(2, trie.nodeCount());
+        trie.add("/api/v1/users/settings");
+        assertEquals(4, trie.nodeCount());
+        trie.add("/api/v1/users/");
+        assertEquals(4, trie.nodeCount());
+        trie.add("/api/v1/users");
+        assertEquals(5, trie.nodeCount());
+    }
+
+    @Test
+    void removeMergesNodes() {
+        trie.add("/api/v1/users/profile");
+        trie.add("/api/v1/users/settings");
+        trie.add("/api/v1/users");
+        assertTrue(trie.remove("/api/v1/users/settings"));
+        assertEquals(3, trie.nodeCount());
+        assertTrue(trie.remove("/api/v1/users"));
+        assertEquals(2, trie.nodeCount());
+        assertTrue(trie.contains("/api/v1/users/profile"));
+        var other = new RadixTrie();
+        other.add("/api/v1/users/profile");
+        assertEquals(other, trie);
+    }
+
+    @Test
+    void howManyStartsWithPrefix() {
+        String[] words = {"a", "abacaba", "abcabc", "bc", "abcbac", "adbcc", "abac", "acc"};
+        for (String word : words) {
+            trie.add(word);
+        }
+        assertEquals(7, trie.howManyStartsWithPrefix("a"));
+        assertEquals(0, trie.howManyStartsWithPrefix("c"));
+        assertEquals(0, trie.howManyStartsWithPrefix("abcbc"));
+        assertEquals(2, trie.howManyStartsWithPrefix("aba"));
+        assertEquals(1, trie.howManyStartsWithPrefix("ad"));
+        assertEquals(1, trie.howManyStartsWithPrefix("adb"));
+        assertEquals(1, trie.howManyStartsWithPrefix("b"));
+        assertEquals(1, trie.howManyStartsWithPrefix("abacab"));
+        assertEquals(0, trie.howManyStartsWithPrefix("abacabaa"));
+        assertEquals(4, trie.howManyStartsWithPrefix("ab"));
+        assertEquals(8, trie.howManyStartsWithPrefix(""));
+    }
+
+    @Test
+    void sameAsTrie() {
+        var random = new Random(0);
+        var expected = new Trie();
+        for (int i = 0; i < 20_000; i++) {
+            var word = randomWord(random, 3);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(word), trie.remove(word));
+            } else {
+                assertEquals(expected.add(word), trie.add(word));
+            }
+            var query = randomWord(random, 3);
+            assertEquals(expected.contains(query), trie.contains(query));
+            assertEquals(expected.howManyStartsWithPrefix(query), trie.howManyStartsWithPrefix(query));
+        }
+        assertEquals(expected.size(), trie.size());
+    }
+
+    @Test
+    void equalsDoesNotDependOnOrder() {
+        var other = new RadixTrie();
+        trie.add("abc");
+        trie.add("ab");
+        trie.add("abd");
+        other.add("abd");
+        other.add("abc");
+        other.add("ab");
+        assertEquals(trie, other);
+        assertEquals(trie.hashCode(), other.hashCode());
+        other.remove("ab");
+        assertNotEquals(trie, other);
+    }
+}
@@ -0,0 +1,129 @@
+package ru.hse.kuzyaka.trie;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrieMapTest {
+    private TrieMap<Integer> map;
+
+    @BeforeEach
+    void setUp() {
+        map = new TrieMap<>();
+    }
+
+    @Test
+    void empty() {
+        assertEquals(0, map.size());
+        assertNull(map.get(""));
+        assertFalse(map.containsKey("a"));
+        assertNull(map.remove("a"));
+        assertNull(map.longestPrefixMatch("abc"));
+    }
+
+    @Test
+    void putAndGet() {
+        assertNull(map.put("abc", 1));
+        assertNull(map.put("", 2));
+        assertEquals(Integer.valueOf(1), map.put("abc", 3));
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(3), map.get("abc"));
+        assertEquals(Integer.valueOf(2), map.get(""));
+        assertNull(map.get("ab"));
+        assertFalse(map.containsKey("ab"));
+        assertThrows(NullPointerException.class, () -> map.put("a", null));
+    }
+
+    @Test
+    void remove() {
+        map.put("ab", 1);
+        map.put("abc", 2);
+        assertNull(map.remove("a"));
+        assertEquals(Integer.valueOf(2), map.remove("abc"));
+        assertEquals(1, map.size());
+        assertEquals(1, map.howManyStartsWithPrefix("a"));
+        assertEquals(0, map.howManyStartsWithPrefix("abc"));
+        assertEquals(Integer.valueOf(1), map.remove("ab"));
+        assertEquals(0, map.howManyStartsWithPrefix(""));
+    }
+
+    @Test
+    void forEachWithPrefix() {
+        String[] keys = {"b", "ab", "a", "abd", "abc", "ac", ""};
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        var entries = new ArrayList<Map.Entry<String, Integer>>();
+        map.forEachWithPrefix("ab", (key, value) -> entries.add(new AbstractMap.SimpleEntry<>(key, value)));
+        assertEquals(List.of(Map.entry("ab", 1), Map.entry("abc", 4), Map.entry("abd", 3)), entries);
+        var allKeys = new ArrayList<String>();
+        map.forEachWithPrefix("", (key, value) -> allKeys.add(key));
+        assertEquals(List.of("", "a", "ab", "abc", "abd", "ac", "b"), allKeys);
+        map.forEachWithPrefix("abe", (key, value) -> fail());
+    }
+
+    @Test
+    void removePrefix() {
+        String[] keys = {"a", "ab", "abc", "abd", "b", "bcd"};
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        assertEquals(3, map.removePrefix("ab"));
+        assertEquals(3, map.size());
+        assertEquals(1, map.howManyStartsWithPrefix("a"));
+        assertFalse(map.containsKey("abc"));
+        assertEquals(Integer.valueOf(0), map.get("a"));
+        assertEquals(0, map.removePrefix("ab"));
+        assertEquals(1, map.removePrefix("bc"));
+        assertEquals(1, map.howManyStartsWithPrefix("b"));
+        assertNull(map.put("abc", 7));
+        assertEquals(Integer.valueOf(7), map.get("abc"));
+        assertEquals(3, map.removePrefix(""));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void longestPrefixMatch() {
+        map.put("10.0", 1);
+        map.put("10.0.1", 2);
+        map.put("10.0.1.5", 3);
+        assertEquals(Map.entry("10.0.1", 2), map.longestPrefixMatch("10.0.1.7"));
+        assertEquals(Map.entry("10.0.1.5", 3), map.longestPrefixMatch("10.0.1.5"));
+        assertEquals(Map.entry("10.0", 1), map.longestPrefixMatch("10.0.2"));
+        assertNull(map.longestPrefixMatch("10.1"));
+        map.put("", 0);
+        assertEquals(Map.entry("", 0), map.longestPrefixMatch("10.1"));
+    }
+
+    @Test
+    void sameAsTreeMap() {
+        var random = new Random(0);
+        var expected = new TreeMap<String, Integer>();
+        for (int i = 0; i < 50_000; i++) {
+            var key = Integer.toString(random.nextInt(5000), 6);
+            int operation = random.nextInt(100);
+            if (operation < 60) {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            } else if (operation < 95) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                var prefix = key.substring(0, Math.min(2, key.length()));
+                var removed = expected.subMap(prefix, prefix + Character.MAX_VALUE);
+                assertEquals(removed.size(), map.removePrefix(prefix));
+                removed.clear();
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        var actual = new TreeMap<String, Integer>();
+        map.forEachWithPrefix("", actual::put);
+        assertEquals(expected, actual);
+    }
+}
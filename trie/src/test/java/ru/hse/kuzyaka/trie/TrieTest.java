@@ -7,6 +7,17 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -165,6 +176,243 @@ class TrieTest {
         assertEquals(2, trie.howManyStartsWithPrefix("aba"));
     }
 
+    @Test
+    void iteratorWithPrefix() {
+        String[] words = {"a", "abacaba", "abcabc", "bc", "abcbac", "adbcc", "abac", "acc"};
+        for (String word : words) {
+            trie.add(word);
+        }
+        var iterator = trie.iteratorWithPrefix("ab");
+        var result = new ArrayList<String>();
+        iterator.forEachRemaining(result::add);
+        assertEquals(List.of("abac", "abacaba", "abcabc", "abcbac"), result);
+        assertThrows(NoSuchElementException.class, iterator::next);
+        assertFalse(trie.iteratorWithPrefix("abd").hasNext());
+        assertFalse(trie.iteratorWithPrefix("abacabaa").hasNext());
+    }
+
+    @Test
+    void wordsWithPrefix() {
+        var expected = new TreeSet<String>();
+        for (int i = 0; i < 1000; i++) {
+            trie.add(String.valueOf(i * 7));
+            expected.add(String.valueOf(i * 7));
+        }
+        trie.add("");
+        var result = trie.wordsWithPrefix("1").collect(Collectors.toList());
+        assertEquals(new ArrayList<>(expected.subSet("1", "2")), result);
+        assertEquals(1001, trie.wordsWithPrefix("").count());
+        assertEquals("", trie.wordsWithPrefix("").findFirst().orElseThrow());
+    }
+
+    @Test
+    void wordsWithPrefixOfDeepTrie() {
+        var word = "a".repeat(100_000);
+        trie.add(word);
+        trie.add(word.substring(1));
+        assertEquals(List.of(word.substring(1), word), trie.wordsWithPrefix("aaa").collect(Collectors.toList()));
+    }
+
+    @Test
+    void autocomplete() {
+        trie.add("apple", 5);
+        trie.add("application", 10);
+        trie.add("apply", 1);
+        trie.add("banana", 100);
+        trie.add("ape");
+        assertEquals(List.of("application", "apple"), trie.autocomplete("ap", 2));
+        assertEquals(List.of("application", "apple", "apply", "ape"), trie.autocomplete("ap", 10));
+        assertEquals(List.of(), trie.autocomplete("c", 10));
+        assertEquals(List.of(), trie.autocomplete("ap", 0));
+        assertFalse(trie.add("apply", 20));
+        assertEquals(List.of("banana", "apply"), trie.autocomplete("", 2));
+        trie.remove("banana");
+        trie.remove("apply");
+        assertEquals(List.of("application"), trie.autocomplete("", 1));
+        assertThrows(IllegalArgumentException.class, () -> trie.autocomplete("", -1));
+    }
+
+    @Test
+    void autocompleteSameAsSorting() {
+        var random = new Random(0);
+        var weights = new HashMap<String, Long>();
+        for (int i = 0; i < 5000; i++) {
+            var word = Integer.toString(random.nextInt(100_000), 7);
+            long weight = random.nextLong();
+            if (random.nextInt(4) == 0) {
+                trie.remove(word);
+                weights.remove(word);
+            } else {
+                trie.add(word, weight);
+                weights.put(word, weight);
+            }
+        }
+        var expected = weights.keySet().stream()
+                .filter(word -> word.startsWith("1"))
+                .sorted(Comparator.comparing(weights::get).reversed())
+                .limit(20)
+                .collect(Collectors.toList());
+        assertEquals(expected, trie.autocomplete("1", 20));
+    }
+
+    @Test
+    void fromSorted() {
+        var random = new Random(0);
+        var words = new TreeSet<String>();
+        for (int i = 0; i < 10_000; i++) {
+            var builder = new StringBuilder();
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                builder.append((char) ('a' + random.nextInt(5)));
+            }
+            words.add(builder.toString());
+            trie.add(builder.toString());
+        }
+        var sortedTrie = Trie.fromSorted(words.stream());
+        assertEquals(trie, sortedTrie);
+        assertEquals(words.size(), sortedTrie.size());
+        assertEquals(trie.howManyStartsWithPrefix("ab"), sortedTrie.howManyStartsWithPrefix("ab"));
+        assertEquals(List.copyOf(words), sortedTrie.wordsWithPrefix("").collect(Collectors.toList()));
+        assertTrue(sortedTrie.remove(words.last()));
+        assertEquals(words.size() - 1, sortedTrie.size());
+    }
+
+    @Test
+    void fromSortedEmpty() {
+        assertEquals(trie, Trie.fromSorted(Stream.empty()));
+        assertEquals(0, Trie.fromSorted(Stream.empty()).size());
+    }
+
+    @Test
+    void fromSortedIgnoresRepeatedStrings() {
+        var sortedTrie = Trie.fromSorted(Stream.of("", "", "a", "a", "ab"));
+        assertEquals(3, sortedTrie.size());
+        assertTrue(sortedTrie.contains(""));
+        assertEquals(2, sortedTrie.howManyStartsWithPrefix("a"));
+    }
+
+    @Test
+    void fromSortedUnsorted() {
+        assertThrows(IllegalArgumentException.class, () -> Trie.fromSorted(Stream.of("ab", "b", "a")));
+    }
+
+    @Test
+    void fromSortedAutocomplete() {
+        var sortedTrie = Trie.fromSorted(Stream.of("a", "ab", "abc"));
+        sortedTrie.add("ab", 5);
+        assertEquals(List.of("ab"), sortedTrie.autocomplete("", 1));
+    }
+
+    @Test
+    void fuzzySearch() {
+        String[] words = {"", "cat", "cart", "cast", "at", "dog", "cats", "scat", "act"};
+        for (String word : words) {
+            trie.add(word);
+        }
+        assertEquals(List.of("cat"), trie.fuzzySearch("cat", 0));
+        assertEquals(List.of("at", "cart", "cast", "cat", "cats", "scat"), trie.fuzzySearch("cat", 1));
+        assertEquals(List.of("", "act", "at", "cart", "cast", "cat", "cats", "dog", "scat"),
+                trie.fuzzySearch("cat", 3));
+        assertEquals(List.of("", "at"), trie.fuzzySearch("", 2));
+        assertEquals(List.of(), trie.fuzzySearch("elephant", 2));
+        assertThrows(IllegalArgumentException.class, () -> trie.fuzzySearch("cat", -1));
+    }
+
+    @Test
+    void fuzzySearchSameAsBruteForce() {
+        var random = new Random(0);
+        var words = new TreeSet<String>();
+        for (int i = 0; i < 3000; i++) {
+            var word = Integer.toString(random.nextInt(100_000), 5);
+            words.add(word);
+            trie.add(word);
+        }
+        for (int i = 0; i < 50; i++) {
+            var query = Integer.toString(random.nextInt(100_000), 5);
+            for (int distance = 0; distance <= 3; distance++) {
+                int maxDistance = distance;
+                var expected = words.stream()
+                        .filter(word -> editDistance(word, query) <= maxDistance)
+                        .collect(Collectors.toList());
+                assertEquals(expected, trie.fuzzySearch(query, maxDistance));
+            }
+        }
+    }
+
+    @Test
+    void merge() {
+        trie.add("ab", 3);
+        trie.add("abc");
+        var other = new Trie();
+        other.add("", 1);
+        other.add("ab", 5);
+        other.add("abd", 7);
+        other.add("b");
+        trie.merge(other);
+        assertEquals(5, trie.size());
+        assertEquals(3, trie.howManyStartsWithPrefix("ab"));
+        assertEquals(List.of("abd", "ab"), trie.autocomplete("", 2));
+        assertEquals(0, other.size());
+        assertFalse(other.contains("b"));
+        other.add("c");
+        assertFalse(trie.contains("c"));
+    }
+
+    @Test
+    void mergeWithItself() {
+        trie.add("a");
+        trie.merge(trie);
+        assertEquals(1, trie.size());
+        assertTrue(trie.contains("a"));
+    }
+
+    @Test
+    void mergeDeepTries() {
+        var other = new Trie();
+        trie.add("a".repeat(100_000));
+        other.add("a".repeat(100_001));
+        trie.merge(other);
+        assertEquals(2, trie.size());
+        assertEquals(1, trie.howManyStartsWithPrefix("a".repeat(100_001)));
+    }
+
+    @Test
+    void addAllSameAsAdd() {
+        var random = new Random(0);
+        var words = new ArrayList<String>();
+        var expected = new Trie();
+        for (int i = 0; i < 10_000; i++) {
+            var builder = new StringBuilder();
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                builder.append((char) ('a' + random.nextInt(5)));
+            }
+            words.add(builder.toString());
+            expected.add(builder.toString());
+        }
+        trie.add("abc", 2);
+        expected.add("abc", 2);
+        assertTrue(trie.addAll(words, new ForkJoinPool(4)));
+        assertEquals(expected, trie);
+        assertEquals(expected.howManyStartsWithPrefix("ab"), trie.howManyStartsWithPrefix("ab"));
+        assertEquals(expected.autocomplete("a", 1), trie.autocomplete("a", 1));
+        assertFalse(trie.addAll(words.subList(0, 100)));
+    }
+
+    @Test
+    void parallelBuild() {
+        var shards = List.of(List.of("a", "ab"), List.of("ab", "b"), List.<String>of(), List.of("", "abc", "ba"));
+        var parallelTrie = Trie.parallelBuild(shards, new ForkJoinPool(2));
+        for (var shard : shards) {
+            for (var word : shard) {
+                trie.add(word);
+            }
+        }
+        assertEquals(trie, parallelTrie);
+        assertEquals(6, parallelTrie.size());
+        assertEquals(0, Trie.parallelBuild(List.of(), ForkJoinPool.commonPool()).size());
+    }
+
     @Test
     void serializeMoveData() {
         for (int i = 0; i < 10; i++) {
@@ -214,9 +462,7 @@ class TrieTest {
 
     @Test
     void serializeProtocolTest() throws IOException {
-        try (var actual = new ByteArrayOutputStream(); var expected = new ByteArrayOutputStream()) {
-            assertDoesNotThrow(() -> simpleTrieToByteArray(expected));
-
+        try (var actual = new ByteArrayOutputStream()) {
             trie.add("a");
             trie.add("ab");
             trie.add("ac");
@@ -224,10 +470,86 @@ class TrieTest {
 
             assertDoesNotThrow(() -> trie.serialize(actual));
 
-            assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+            assertArrayEquals(simpleTrieBytes(), actual.toByteArray());
+        }
+    }
+
+    @Test
+    void deserializeCurrentProtocolTest() {
+        var expectedTrie = new Trie();
+        expectedTrie.add("a");
+        expectedTrie.add("ab");
+        expectedTrie.add("b");
+        expectedTrie.add("ac");
+
+        assertDoesNotThrow(() -> trie.deserialize(new ByteArrayInputStream(simpleTrieBytes())));
+        assertEquals(expectedTrie, trie);
+    }
+
+    @Test
+    void serializeWeights() {
+        trie.add("apple", 5);
+        trie.add("apply", -1_000_000_000_000L);
+        trie.add("ape");
+        var getter = new Trie();
+
+        assertDoesNotThrow(() -> moveData(trie, getter));
+
+        assertEquals(trie, getter);
+        assertEquals(List.of("apple", "ape", "apply"), getter.autocomplete("ap", 3));
+    }
+
+    @Test
+    void serializeDeepTrie() {
+        var word = "ab".repeat(50_000);
+        trie.add(word);
+        trie.add(word.substring(1));
+        var getter = new Trie();
+
+        assertDoesNotThrow(() -> moveData(trie, getter));
+
+        assertEquals(2, getter.size());
+        assertTrue(getter.contains(word));
+        assertTrue(getter.contains(word.substring(1)));
+    }
+
+    @Test
+    void serializeIsSmallerThanOldFormat() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            trie.add(String.valueOf(i));
+        }
+        try (var out = new ByteArrayOutputStream()) {
+            trie.serialize(out);
+            assertTrue(out.size() < 3000);
         }
     }
 
+    @Test
+    void deserializeDoesNotReadFurther() throws IOException {
+        trie.add("abc");
+        try (var out = new ByteArrayOutputStream()) {
+            trie.serialize(out);
+            out.write(42);
+            var in = new ByteArrayInputStream(out.toByteArray());
+            var getter = new Trie();
+            getter.deserialize(in);
+            assertEquals(trie, getter);
+            assertEquals(42, in.read());
+        }
+    }
+
+    @Test
+    void deserializeCorrupted() throws IOException {
+        byte[] bytes = simpleTrieBytes();
+        var getter = new Trie();
+        getter.add("x");
+        assertThrows(IOException.class,
+                () -> getter.deserialize(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))));
+        bytes[4] = 3;
+        assertThrows(IOException.class, () -> getter.deserialize(new ByteArrayInputStream(bytes)));
+        assertTrue(getter.contains("x"));
+    }
+
     @Test
     void deserializeProtocolTest() throws IOException {
         Trie expectedTrie;
@@ -267,6 +589,22 @@ class TrieTest {
         assertNotEquals(trie, otherTrie);
     }
 
+    int editDistance(String first, String second) {
+        var distances = new int[first.length() + 1][second.length() + 1];
+        for (int i = 0; i <= first.length(); i++) {
+            for (int j = 0; j <= second.length(); j++) {
+                if (i == 0 || j == 0) {
+                    distances[i][j] = i + j;
+                } else {
+                    int substitution = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+                    distances[i][j] = Math.min(Math.min(distances[i - 1][j], distances[i][j - 1]) + 1,
+                            distances[i - 1][j - 1] + substitution);
+                }
+            }
+        }
+        return distances[first.length()][second.length()];
+    }
+
     void moveData(Trie from, Trie to) throws IOException {
         ByteArrayInputStream in;
         try (var out = new ByteArrayOutputStream()) {
@@ -276,6 +614,10 @@ class TrieTest {
         }
     }
 
+    byte[] simpleTrieBytes() {
+        return new byte[]{'T', 'R', 'I', 'E', 2, 5, 9, 8, 'a', 9, 'b', 1, 'c', 1, 'b', 1};
+    }
+
     void simpleTrieToByteArray(ByteArrayOutputStream out) throws IOException {
         try (var dataOut = new DataOutputStream(out)) {
             printNode(dataOut, false, 4, 0, '\0', 2);
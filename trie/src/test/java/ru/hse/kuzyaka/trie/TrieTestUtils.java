@@ -0,0 +1,36 @@
+package ru.hse.kuzyaka.trie;
+
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Random words and checks shared by the tests of tries which are compared with {@link Trie} **/
+final class TrieTestUtils {
+    private static final int QUERIES = 10_000;
+
+    private TrieTestUtils() {
+    }
+
+    /** Returns a word of length less than 8 of the first {@code letters} letters of the alphabet **/
+    static String randomWord(Random random, int letters) {
+        var builder = new StringBuilder();
+        int length = random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(letters)));
+        }
+        return builder.toString();
+    }
+
+    /** Checks that random words and their halves are answered the same way as by the given trie **/
+    static void assertSameAnswers(Trie expected, Predicate<String> contains,
+                                  ToIntFunction<String> howManyStartsWithPrefix, Random random, int letters) {
+        for (int i = 0; i < QUERIES; i++) {
+            var word = randomWord(random, letters);
+            assertEquals(expected.contains(word), contains.test(word));
+            var prefix = word.substring(0, word.length() / 2);
+            assertEquals(expected.howManyStartsWithPrefix(prefix), howManyStartsWithPrefix.applyAsInt(prefix));
+        }
+    }
+}